@@ -0,0 +1,17 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "jsoup-connect")
+public class ConnectionSettings {
+    private String userAgent;
+    private String referrer;
+    private int timeout = 10000;
+    private int maxBodySize = 2 * 1024 * 1024;
+}
@@ -0,0 +1,19 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    private int shardThreads = 4;
+    private int shardQueueCapacity = 64;
+    private long shardTimeout = 2000;
+    private long resultCacheSize = 10_000;
+    private double commonLemmaPercentile = 0.99;
+    private int commonLemmaMinPages = 50;
+}
@@ -8,4 +8,5 @@ import lombok.Setter;
 public class SiteConfig {
     private String url;
     private String name;
+    private long crawlDelay = 500;
 }
@@ -13,4 +13,6 @@ import java.util.List;
 @ConfigurationProperties(prefix = "indexing-settings")
 public class SitesList {
     private List<SiteConfig> sites;
+    private String checkpointDir = "checkpoints";
+    private long checkpointInterval = 10000;
 }
@@ -1,18 +1,23 @@
 package searchengine.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import searchengine.dto.ErrorResponse;
 import searchengine.dto.indexing.SinglePageIndexingResponse;
 import searchengine.dto.indexing.StartIndexingResponse;
 import searchengine.dto.indexing.StopIndexingResponse;
 import searchengine.dto.search.SearchResponse;
+import searchengine.dto.search.SuggestResponse;
 import searchengine.dto.statistics.*;
+import searchengine.services.IndexingProgressPublisher;
 import searchengine.services.SinglePageIndexingService;
 import searchengine.services.SearchService;
 import searchengine.services.StartAndStopIndexingService;
 import searchengine.services.StatisticsService;
+import searchengine.services.SuggestService;
 
 @RestController
 @RequestMapping("/api")
@@ -22,14 +27,18 @@ public class ApiController {
     private final StartAndStopIndexingService startAndStopIndexingService;
     private final SinglePageIndexingService indexPageService;
     private final SearchService searchService;
+    private final SuggestService suggestService;
+    private final IndexingProgressPublisher indexingProgressPublisher;
 
 
     @Autowired
-    public ApiController(StatisticsService statisticsService, StartAndStopIndexingService startIndexingService, SinglePageIndexingService indexPageService, SearchService searchService) {
+    public ApiController(StatisticsService statisticsService, StartAndStopIndexingService startIndexingService, SinglePageIndexingService indexPageService, SearchService searchService, SuggestService suggestService, IndexingProgressPublisher indexingProgressPublisher) {
         this.statisticsService = statisticsService;
         this.startAndStopIndexingService = startIndexingService;
         this.indexPageService = indexPageService;
         this.searchService = searchService;
+        this.suggestService = suggestService;
+        this.indexingProgressPublisher = indexingProgressPublisher;
     }
 
 
@@ -40,8 +49,8 @@ public class ApiController {
 
 
     @GetMapping("/startIndexing")
-    public ResponseEntity startIndexing() {
-        StartIndexingResponse startIndexingResponse = startAndStopIndexingService.startIndexing();
+    public ResponseEntity startIndexing(@RequestParam(defaultValue = "false") boolean incremental) {
+        StartIndexingResponse startIndexingResponse = startAndStopIndexingService.startIndexing(incremental);
         if (startIndexingResponse.isResult()) {
             return ResponseEntity.ok(startIndexingResponse);
         }
@@ -51,6 +60,19 @@ public class ApiController {
     }
 
 
+    @GetMapping("/resumeIndexing")
+    public ResponseEntity resumeIndexing() {
+        boolean indexing = startAndStopIndexingService.isIndexing();
+        StartIndexingResponse startIndexingResponse = startAndStopIndexingService.resumeIndexing();
+        if (startIndexingResponse.isResult()) {
+            return ResponseEntity.ok(startIndexingResponse);
+        }
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setError(indexing ? "Индексация уже запущена" : "Нет прерванной индексации для продолжения");
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+
+
     @GetMapping("/stopIndexing")
     public ResponseEntity stopIndexing() {
         StopIndexingResponse stopIndexingResponse = startAndStopIndexingService.stopIndexing();
@@ -63,6 +85,12 @@ public class ApiController {
     }
 
 
+    @GetMapping(value = "/indexing/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter indexingProgress() {
+        return indexingProgressPublisher.subscribe();
+    }
+
+
     @PostMapping("/indexPage")
     public ResponseEntity indexPage(@RequestParam String url) {
         SinglePageIndexingResponse singlePageIndexingResponse = indexPageService.addOrUpdatePageIndex(url);
@@ -76,8 +104,10 @@ public class ApiController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity search(String query, String site) {
-        SearchResponse searchResponse = searchService.search(query, site);
+    public ResponseEntity search(String query, String site,
+                                 @RequestParam(defaultValue = "0") int offset,
+                                 @RequestParam(defaultValue = "20") int limit) {
+        SearchResponse searchResponse = searchService.search(query, site, offset, limit);
         if(searchResponse.isResult()) {
             return ResponseEntity.ok(searchResponse);
         }
@@ -88,4 +118,16 @@ public class ApiController {
     }
 
 
+    @GetMapping("/suggest")
+    public ResponseEntity suggest(String query, String site, @RequestParam(defaultValue = "10") int limit) {
+        SuggestResponse suggestResponse = suggestService.suggest(query, site, limit);
+        if(suggestResponse.isResult()) {
+            return ResponseEntity.ok(suggestResponse);
+        }
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setError("Задан пустой запрос для подсказок");
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+
+
 }
@@ -0,0 +1,14 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+@Data
+public class SiteIndexingProgress {
+    private String url;
+    private String name;
+    private int pagesFetched;
+    private int pagesQueued;
+    private int lemmasWritten;
+    private int errors;
+    private double fetchRate;
+}
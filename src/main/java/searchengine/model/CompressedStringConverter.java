@@ -0,0 +1,46 @@
+package searchengine.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Хранит строку в базе сжатой алгоритмом Deflate.
+ */
+@Converter
+public class CompressedStringConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(attribute.length() / 4);
+        try (OutputStream out = new DeflaterOutputStream(buffer)) {
+            out.write(attribute.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(dbData))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -27,4 +27,16 @@ public class IndexModel {
     @Column(name = "lemma_rank", nullable = false)
     private float rank;
 
+    /**
+     * Позиции леммы в тексте страницы, сжатые разностным varint-кодированием.
+     */
+    @Column(name = "positions", columnDefinition = "MEDIUMBLOB")
+    private byte[] positions;
+
+    /**
+     * Смещения вхождений леммы в тексте страницы в символах, сжатые так же, как позиции.
+     */
+    @Column(name = "offsets", columnDefinition = "MEDIUMBLOB")
+    private byte[] offsets;
+
 }
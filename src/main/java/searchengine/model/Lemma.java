@@ -11,7 +11,7 @@ import java.util.List;
 @Setter
 @Entity
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
-@Table(name = "lemmas")
+@Table(name = "lemmas", uniqueConstraints = {@UniqueConstraint(name = "uk_site_lemma", columnNames = {"site_id", "lemma"})})
 public class Lemma {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,7 +21,7 @@ public class Lemma {
     @JoinColumn(name = "site_id",referencedColumnName = "id", nullable = false)
     private Site site;
 
-    @Column(columnDefinition = "VARCHAR(255)", nullable = false)
+    @Column(columnDefinition = "VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin", nullable = false)
     private String lemma;
 
     @EqualsAndHashCode.Include
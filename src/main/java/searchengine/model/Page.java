@@ -28,8 +28,20 @@ public class Page implements Comparable<Page>{
     @Column(nullable = false)
     private Integer code;
 
-    @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
-    private String content;
+    @Column(columnDefinition = "VARCHAR(500)")
+    private String title;
+
+    @Column(name = "plain_text", columnDefinition = "MEDIUMTEXT", nullable = false)
+    private String text;
+
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String etag;
+
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
 
     @ManyToMany()
     @JoinTable(name = "index_model",
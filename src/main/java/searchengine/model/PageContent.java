@@ -0,0 +1,31 @@
+package searchengine.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import javax.persistence.*;
+
+/**
+ * Исходный HTML страницы. Вынесен из pages, чтобы не загружаться вместе со страницей.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "page_contents")
+public class PageContent {
+
+    @Id
+    private Integer id;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "page_id", referencedColumnName = "id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Page page;
+
+    @Convert(converter = CompressedStringConverter.class)
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private String html;
+}
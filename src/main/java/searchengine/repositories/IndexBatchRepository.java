@@ -0,0 +1,146 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Пакетная запись и потоковое чтение лемм и индексов через JDBC в обход JPA.
+ * Для многострочных INSERT в url подключения должен быть включён rewriteBatchedStatements.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IndexBatchRepository {
+
+    private static final int selectChunkSize = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+
+    public void upsertLemmaFrequencies(int siteId, SortedMap<String, Integer> frequencyDeltas) {
+        if (frequencyDeltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(frequencyDeltas.size());
+        for (Map.Entry<String, Integer> entry : frequencyDeltas.entrySet()) {
+            args.add(new Object[]{siteId, entry.getKey(), entry.getValue()});
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "INSERT INTO lemmas (site_id, lemma, frequency) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)", args);
+    }
+
+
+    public Map<String, Integer> findLemmaIds(int siteId, Collection<String> lemmas) {
+        Map<String, Integer> lemmaIds = new HashMap<>();
+        List<String> lemmaList = new ArrayList<>(lemmas);
+        for (int from = 0; from < lemmaList.size(); from += selectChunkSize) {
+            List<String> chunk = lemmaList.subList(from, Math.min(from + selectChunkSize, lemmaList.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("siteId", siteId)
+                    .addValue("lemmas", chunk);
+            jdbcTemplate.query("SELECT id, lemma FROM lemmas WHERE site_id = :siteId AND lemma IN (:lemmas)",
+                    params, rs -> {
+                        lemmaIds.put(rs.getString("lemma"), rs.getInt("id"));
+                    });
+        }
+        return lemmaIds;
+    }
+
+
+    /**
+     * Леммы страницы: id леммы и её текст.
+     */
+    public Map<Integer, String> findLemmasByPage(int pageId) {
+        Map<Integer, String> lemmas = new HashMap<>();
+        jdbcTemplate.getJdbcTemplate().query(
+                "SELECT l.id, l.lemma FROM index_model i JOIN lemmas l ON l.id = i.lemma_id WHERE i.page_id = ?",
+                rs -> {
+                    lemmas.put(rs.getInt("id"), rs.getString("lemma"));
+                }, pageId);
+        return lemmas;
+    }
+
+
+    /**
+     * Сжатые смещения вхождений лемм на страницах: id страницы → id леммы → смещения.
+     */
+    public Map<Integer, Map<Integer, byte[]>> findOffsets(Collection<Integer> pageIds, Collection<Integer> lemmaIds) {
+        Map<Integer, Map<Integer, byte[]>> offsets = new HashMap<>();
+        if (pageIds.isEmpty() || lemmaIds.isEmpty()) {
+            return offsets;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("pageIds", pageIds)
+                .addValue("lemmaIds", lemmaIds);
+        jdbcTemplate.query("SELECT page_id, lemma_id, offsets FROM index_model " +
+                        "WHERE page_id IN (:pageIds) AND lemma_id IN (:lemmaIds)",
+                params, rs -> {
+                    offsets.computeIfAbsent(rs.getInt("page_id"), id -> new HashMap<>())
+                            .put(rs.getInt("lemma_id"), rs.getBytes("offsets"));
+                });
+        return offsets;
+    }
+
+
+    public void countPagesBySite(RowCallbackHandler handler) {
+        jdbcTemplate.getJdbcTemplate().query("SELECT site_id, COUNT(*) AS pages FROM pages GROUP BY site_id", handler);
+    }
+
+
+    public void loadSites(RowCallbackHandler handler) {
+        streamingTemplate().query("SELECT id, url FROM sites", handler);
+    }
+
+
+    public void loadLemmas(RowCallbackHandler handler) {
+        streamingTemplate().query("SELECT id, site_id, lemma, frequency FROM lemmas", handler);
+    }
+
+
+    public void loadIndexes(RowCallbackHandler handler) {
+        streamingTemplate().query(
+                "SELECT lemma_id, page_id, lemma_rank, positions FROM index_model ORDER BY lemma_id, page_id", handler);
+    }
+
+
+    public void decrementLemmaFrequencies(int pageId) {
+        jdbcTemplate.getJdbcTemplate().update(
+                "UPDATE lemmas l JOIN index_model i ON i.lemma_id = l.id " +
+                        "SET l.frequency = l.frequency - 1 WHERE i.page_id = ?", pageId);
+    }
+
+
+    public void deleteIndexes(int pageId) {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM index_model WHERE page_id = ?", pageId);
+    }
+
+
+    public void deleteUnusedLemmas(int siteId) {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM lemmas WHERE site_id = ? AND frequency <= 0", siteId);
+    }
+
+
+    public void insertIndexes(List<Object[]> pageLemmaRanks) {
+        if (pageLemmaRanks.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "INSERT INTO index_model (page_id, lemma_id, lemma_rank, positions, offsets) VALUES (?, ?, ?, ?, ?)", pageLemmaRanks);
+    }
+
+
+    /**
+     * Шаблон, который читает результат построчно, не загружая всю выборку в память драйвера.
+     */
+    private JdbcTemplate streamingTemplate() {
+        JdbcTemplate template = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        template.setFetchSize(Integer.MIN_VALUE);
+        return template;
+    }
+}
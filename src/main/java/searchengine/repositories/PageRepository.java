@@ -4,10 +4,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import searchengine.model.Page;
 
+import java.util.List;
+
 @Repository
 public interface PageRepository extends JpaRepository<Page, Integer> {
 
-     Page findByPath(String path);
+     Page findBySite_IdAndPath(Integer siteId, String path);
+
+     List<PageVersion> findAllBySite_Id(Integer siteId);
 
 
 }
@@ -0,0 +1,12 @@
+package searchengine.repositories;
+
+/**
+ * Сведения о сохранённой версии страницы, достаточные для условного запроса.
+ */
+public interface PageVersion {
+    Integer getId();
+    String getPath();
+    String getEtag();
+    String getLastModified();
+    String getContentHash();
+}
@@ -0,0 +1,79 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Приводит базу, оставшуюся от прежних версий, к текущей схеме. Hibernate с ddl-auto: update
+ * только добавляет таблицы и столбцы, но не удаляет и не меняет существующие, поэтому
+ * остальное делается здесь, сразу после обновления схемы и до загрузки индекса в память.
+ * <p>
+ * Если сохранённый индекс нельзя перенести (в нём нет позиций, смещений и сжатого HTML
+ * или есть дубли лемм), страницы и леммы удаляются, а сайты помечаются как требующие
+ * полной индексации.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class SchemaMigration {
+
+    private static final String reindexRequired = "Схема базы обновлена, требуется полная индексация";
+
+    private final JdbcTemplate jdbcTemplate;
+
+
+    @PostConstruct
+    public void migrate() {
+        if (columnExists("pages", "content")) {
+            clearIndex();
+            jdbcTemplate.execute("ALTER TABLE pages DROP COLUMN content");
+        }
+        if (!"utf8mb4_bin".equals(getCollation("lemmas", "lemma"))) {
+            jdbcTemplate.execute("ALTER TABLE lemmas MODIFY lemma VARCHAR(255) " +
+                    "CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL");
+        }
+        if (!indexExists("lemmas", "uk_site_lemma")) {
+            if (hasDuplicateLemmas()) {
+                clearIndex();
+            }
+            jdbcTemplate.execute("ALTER TABLE lemmas ADD CONSTRAINT uk_site_lemma UNIQUE (site_id, lemma)");
+        }
+    }
+
+
+    private void clearIndex() {
+        jdbcTemplate.execute("DELETE FROM index_model");
+        jdbcTemplate.execute("DELETE FROM lemmas");
+        jdbcTemplate.execute("DELETE FROM page_contents");
+        jdbcTemplate.execute("DELETE FROM pages");
+        jdbcTemplate.update("UPDATE sites SET status = 'FAILED', last_error = ?", reindexRequired);
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?", Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    private String getCollation(String table, String column) {
+        return jdbcTemplate.query("SELECT COLLATION_NAME FROM information_schema.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                rs -> rs.next() ? rs.getString(1) : null, table, column);
+    }
+
+    private boolean indexExists(String table, String index) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?", Integer.class, table, index);
+        return count != null && count > 0;
+    }
+
+    private boolean hasDuplicateLemmas() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " +
+                "(SELECT 1 FROM lemmas GROUP BY site_id, lemma HAVING COUNT(*) > 1) duplicates", Integer.class);
+        return count != null && count > 0;
+    }
+}
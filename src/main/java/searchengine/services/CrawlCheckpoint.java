@@ -0,0 +1,107 @@
+package searchengine.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Журнал обхода сайта в локальном файле, в который только дописываются строки:
+ * «Q url» — ссылка поставлена в очередь, «D url» — страница полностью обработана.
+ * Записи копятся в памяти и сбрасываются на диск контрольными точками; по журналу
+ * восстанавливаются посещённые ссылки и очередь ещё не обработанных страниц.
+ */
+public class CrawlCheckpoint {
+
+    private static final String queuedPrefix = "Q ";
+    private static final String donePrefix = "D ";
+
+    private final Path file;
+    private List<String> pendingRecords = new ArrayList<>();
+
+
+    public CrawlCheckpoint(Path directory, String siteUrl) {
+        this.file = directory.resolve(URI.create(siteUrl).getHost() + ".frontier");
+    }
+
+
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    public synchronized void queued(String url) {
+        pendingRecords.add(queuedPrefix + url);
+    }
+
+    public synchronized void done(String url) {
+        pendingRecords.add(donePrefix + url);
+    }
+
+
+    /**
+     * Забирает накопленные записи для сброса на диск.
+     */
+    public synchronized List<String> takePendingRecords() {
+        List<String> records = pendingRecords;
+        pendingRecords = new ArrayList<>();
+        return records;
+    }
+
+    public void append(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, records, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * @return все ссылки, когда-либо поставленные в очередь, в порядке постановки
+     */
+    public Set<String> loadVisited() throws IOException {
+        Set<String> visited = new LinkedHashSet<>();
+        for (String record : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (record.startsWith(queuedPrefix)) {
+                visited.add(record.substring(queuedPrefix.length()));
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return ссылки из очереди, для которых нет отметки об обработке
+     */
+    public List<String> loadFrontier() throws IOException {
+        Set<String> frontier = new LinkedHashSet<>();
+        for (String record : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (record.startsWith(queuedPrefix)) {
+                frontier.add(record.substring(queuedPrefix.length()));
+            } else if (record.startsWith(donePrefix)) {
+                frontier.remove(record.substring(donePrefix.length()));
+            }
+        }
+        return new ArrayList<>(frontier);
+    }
+
+
+    public synchronized void delete() {
+        pendingRecords.clear();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Метрики обхода: время загрузки, разбора, сохранения страницы, лемматизации
+ * и записи индексов, число ошибок и состояние пула текущей индексации.
+ */
+@Getter
+@Component
+public class CrawlMetrics {
+
+    private final Timer fetchTimer;
+    private final Timer parseTimer;
+    private final Timer pageSaveTimer;
+    private final Timer lemmatizeTimer;
+    private final Timer indexWriteTimer;
+    private final Counter errors;
+    private volatile ForkJoinPool pool;
+
+
+    public CrawlMetrics(MeterRegistry registry) {
+        fetchTimer = Timer.builder("crawl.fetch").description("Загрузка страницы").register(registry);
+        parseTimer = Timer.builder("crawl.parse").description("Разбор HTML").register(registry);
+        pageSaveTimer = Timer.builder("crawl.page.save").description("Сохранение страницы").register(registry);
+        lemmatizeTimer = Timer.builder("crawl.lemmatize").description("Лемматизация текста").register(registry);
+        indexWriteTimer = Timer.builder("crawl.index.write").description("Запись пачки лемм и индексов")
+                .register(registry);
+        errors = Counter.builder("crawl.errors").description("Страницы, которые не удалось загрузить")
+                .register(registry);
+        Gauge.builder("crawl.pool.queued", this, metrics -> metrics.pool == null ? 0
+                        : metrics.pool.getQueuedTaskCount() + metrics.pool.getQueuedSubmissionCount())
+                .description("Задачи в очереди пула индексации")
+                .register(registry);
+        Gauge.builder("crawl.pool.active", this, metrics -> metrics.pool == null ? 0 : metrics.pool.getActiveThreadCount())
+                .description("Активные потоки пула индексации")
+                .register(registry);
+    }
+
+
+    /**
+     * Пул создаётся заново при каждом запуске индексации, поэтому датчики читают текущий.
+     */
+    public void monitorPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+}
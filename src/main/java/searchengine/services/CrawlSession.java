@@ -0,0 +1,169 @@
+package searchengine.services;
+
+import lombok.Getter;
+import searchengine.model.Site;
+import searchengine.repositories.PageVersion;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Состояние обхода одного сайта: посещённые ссылки, флаг остановки и счётчики.
+ * Создаётся на каждый запуск индексации сайта и не разделяется между сайтами.
+ */
+@Getter
+public class CrawlSession {
+
+    private final Site site;
+    private final String host;
+    private final long crawlDelay;
+    private final ForkJoinPool workerPool;
+    private final boolean incremental;
+    private final Map<String, PageVersion> knownPages = new ConcurrentHashMap<>();
+    private final Set<String> visitedLinks = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pagesCount = new AtomicInteger();
+    private final AtomicInteger lemmasCount = new AtomicInteger();
+    private final AtomicInteger errorsCount = new AtomicInteger();
+    private final Map<String, Integer> lemmaIds = new ConcurrentHashMap<>();
+    private final List<PageLemmas> pendingLemmas = new ArrayList<>();
+    private final Lock writeLock = new ReentrantLock();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final CrawlCheckpoint checkpoint;
+    private final Set<String> reindexLinks = ConcurrentHashMap.newKeySet();
+    private int batchesInFlight;
+    private volatile boolean stopped;
+
+    public CrawlSession(Site site, long crawlDelay, ForkJoinPool workerPool, boolean incremental,
+                        CrawlCheckpoint checkpoint) {
+        this.site = site;
+        this.host = URI.create(site.getUrl()).getHost();
+        this.crawlDelay = crawlDelay;
+        this.workerPool = workerPool;
+        this.incremental = incremental;
+        this.checkpoint = checkpoint;
+    }
+
+    public String toPath(String url) {
+        return url.replaceAll(site.getUrl(), "/");
+    }
+
+    public String toUrl(String path) {
+        return site.getUrl() + path.substring(1);
+    }
+
+    public PageVersion getKnownPage(String url) {
+        return knownPages.get(toPath(url));
+    }
+
+    public boolean markVisited(String link) {
+        return visitedLinks.add(link);
+    }
+
+    /**
+     * Страница из очереди прерванного обхода могла быть сохранена без лемм,
+     * поэтому при продолжении она загружается и индексируется заново.
+     */
+    public boolean isReindexLink(String link) {
+        return reindexLinks.contains(link);
+    }
+
+    public void markReindex(Collection<String> links) {
+        reindexLinks.addAll(links);
+    }
+
+    /**
+     * Откладывает леммы страницы до записи пачкой.
+     * @return накопленная пачка, если её пора записать, иначе пустой список
+     */
+    public synchronized List<PageLemmas> addPendingLemmas(PageLemmas pageLemmas, int batchSize) {
+        pendingLemmas.add(pageLemmas);
+        if (pendingLemmas.size() < batchSize) {
+            return List.of();
+        }
+        batchesInFlight++;
+        return drainPendingLemmas();
+    }
+
+    public synchronized void batchWritten() {
+        batchesInFlight--;
+    }
+
+    /**
+     * Забирает записи журнала вместе с отложенными леммами, если ни одна пачка
+     * не пишется в базу прямо сейчас: иначе на диск попала бы отметка о странице,
+     * чьи леммы ещё не сохранены.
+     * @return записи журнала или null, если контрольную точку нужно отложить
+     */
+    public synchronized List<String> takeCheckpointRecords(List<PageLemmas> lemmas) {
+        if (batchesInFlight > 0) {
+            return null;
+        }
+        List<String> records = checkpoint.takePendingRecords();
+        lemmas.addAll(drainPendingLemmas());
+        return records;
+    }
+
+    public synchronized List<PageLemmas> drainPendingLemmas() {
+        List<PageLemmas> batch = new ArrayList<>(pendingLemmas);
+        pendingLemmas.clear();
+        return batch;
+    }
+
+    public void taskSubmitted() {
+        pendingTasks.incrementAndGet();
+    }
+
+    public void taskFinished() {
+        if (pendingTasks.decrementAndGet() == 0) {
+            completion.complete(null);
+        }
+    }
+
+    /**
+     * Завершает обход с ошибкой: оставшиеся задачи сессии больше ничего не загружают
+     * и не пишут, как и после остановки пользователем.
+     */
+    public void fail(String message) {
+        stopped = true;
+        completion.completeExceptionally(new RuntimeException(message));
+    }
+
+    public void stop() {
+        fail("Индексация остановлена пользователем");
+    }
+
+    /**
+     * Ждёт, пока не останется ни одной запланированной или выполняемой страницы.
+     * @return false, если обход не завершился за отведённое время
+     */
+    public boolean awaitCompletion(long timeoutMillis) {
+        try {
+            completion.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Индексация прервана");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+}
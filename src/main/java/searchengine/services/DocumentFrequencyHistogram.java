@@ -0,0 +1,48 @@
+package searchengine.services;
+
+/**
+ * Распределение лемм сайта по числу страниц, на которых они встречаются.
+ * Корзины логарифмические: в корзину i попадают леммы с частотой от 2^i до 2^(i+1) - 1,
+ * поэтому перцентиль вычисляется за один проход по 32 счётчикам.
+ */
+public class DocumentFrequencyHistogram {
+
+    private final long[] buckets = new long[32];
+    private long total;
+
+
+    /**
+     * Переносит лемму из корзины прежней частоты в корзину новой; частота 0 не учитывается.
+     */
+    public synchronized void move(int oldFrequency, int newFrequency) {
+        if (oldFrequency > 0) {
+            buckets[bucket(oldFrequency)]--;
+            total--;
+        }
+        if (newFrequency > 0) {
+            buckets[bucket(newFrequency)]++;
+            total++;
+        }
+    }
+
+
+    /**
+     * Верхняя граница частоты, ниже которой лежит заданная доля лемм сайта.
+     */
+    public synchronized int percentile(double fraction) {
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank && seen > 0) {
+                return i >= 30 ? Integer.MAX_VALUE : (1 << (i + 1)) - 1;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+
+    private static int bucket(int frequency) {
+        return 31 - Integer.numberOfLeadingZeros(frequency);
+    }
+}
@@ -0,0 +1,52 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Getter
+@RequiredArgsConstructor
+public class FetchedPage {
+    private final String url;
+    private final int statusCode;
+    private final String contentType;
+    private final String charset;
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    public boolean isSuccessful() {
+        return statusCode < 400 && isTextContent(contentType);
+    }
+
+    /**
+     * Разбираются только текстовые и xml-документы; тело остальных ответов не загружается.
+     */
+    public static boolean isTextContent(String mimeType) {
+        return mimeType != null && (mimeType.startsWith("text/") || mimeType.contains("xml"));
+    }
+
+    public String getContentHash() {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Document parse() throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(body), charset, url);
+    }
+}
@@ -0,0 +1,156 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.ConnectionSettings;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Асинхронная загрузка через общий {@link HttpClient}: соединения переиспользуются,
+ * а ожидание ответа не занимает потоки пула, в котором идёт разбор страниц.
+ * Тело читается только у текстовых ответов и не больше maxBodySize байт,
+ * как и при загрузке через Jsoup.
+ */
+@Component
+public class HttpClientPageFetcher implements PageFetcher {
+
+    private final ConnectionSettings connectionSettings;
+    private final HttpClient httpClient;
+
+    public HttpClientPageFetcher(ConnectionSettings connectionSettings) {
+        this.connectionSettings = connectionSettings;
+        this.httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(connectionSettings.getTimeout()))
+                .build();
+    }
+
+
+    @Override
+    public CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(connectionSettings.getTimeout()))
+                .GET();
+        if (connectionSettings.getUserAgent() != null) {
+            request.header("User-Agent", connectionSettings.getUserAgent());
+        }
+        if (connectionSettings.getReferrer() != null) {
+            request.header("Referer", connectionSettings.getReferrer());
+        }
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+        return httpClient.sendAsync(request.build(), this::handleBody)
+                .thenApply(this::toFetchedPage);
+    }
+
+
+    private HttpResponse.BodySubscriber<byte[]> handleBody(HttpResponse.ResponseInfo responseInfo) {
+        String contentType = responseInfo.headers().firstValue("Content-Type").orElse(null);
+        if (!FetchedPage.isTextContent(getMimeType(contentType))) {
+            return HttpResponse.BodySubscribers.replacing(new byte[0]);
+        }
+        return new LimitedBodySubscriber(connectionSettings.getMaxBodySize());
+    }
+
+
+    private FetchedPage toFetchedPage(HttpResponse<byte[]> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        String mimeType = getMimeType(contentType);
+        String charset = null;
+        if (contentType != null) {
+            String[] parts = contentType.split(";");
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i].trim();
+                if (part.toLowerCase().startsWith("charset=")) {
+                    charset = supportedCharsetOrNull(part.substring("charset=".length()).replace("\"", "").trim());
+                }
+            }
+        }
+        return new FetchedPage(response.uri().toString(), response.statusCode(), mimeType, charset, response.body(),
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+    }
+
+
+    private static String getMimeType(String contentType) {
+        return contentType == null ? null : contentType.split(";")[0].trim().toLowerCase();
+    }
+
+
+    private String supportedCharsetOrNull(String charset) {
+        try {
+            return Charset.isSupported(charset) ? charset : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Читает тело ответа до предела, после чего отменяет загрузку и отдаёт прочитанное.
+     */
+    private static class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        private final int maxBodySize;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        private LimitedBodySubscriber(int maxBodySize) {
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (result.isDone()) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                byte[] chunk = new byte[Math.min(buffer.remaining(), maxBodySize - body.size())];
+                buffer.get(chunk);
+                body.write(chunk, 0, chunk.length);
+                if (body.size() >= maxBodySize) {
+                    subscription.cancel();
+                    result.complete(body.toByteArray());
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(body.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import searchengine.dto.indexing.IndexingProgressResponse;
+import searchengine.dto.indexing.SiteIndexingProgress;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рассылает ход индексации подписчикам SSE. Счётчики сессий читаются раз в такт,
+ * и событие отправляется, только если снимок изменился, поэтому частота событий
+ * не зависит от скорости обхода, а база данных не опрашивается вовсе.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndexingProgressPublisher {
+
+    private static final long tickMillis = 1000;
+    private static final long emitterTimeout = 30 * 60 * 1000;
+
+    private final StartAndStopIndexingService startAndStopIndexingService;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> previousPages = new HashMap<>();
+    private volatile IndexingProgressResponse lastProgress;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "indexing-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    @PostConstruct
+    public void start() {
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeout);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(throwable -> emitters.remove(emitter));
+        emitters.add(emitter);
+        IndexingProgressResponse progress = lastProgress;
+        if (progress != null) {
+            send(emitter, progress);
+        }
+        return emitter;
+    }
+
+
+    /**
+     * Скорость загрузки считается по приросту числа страниц сайта за такт.
+     */
+    private void tick() {
+        try {
+            List<SiteIndexingProgress> sites = startAndStopIndexingService.getProgress();
+            Map<String, Integer> currentPages = new HashMap<>();
+            for (SiteIndexingProgress site : sites) {
+                int previous = previousPages.getOrDefault(site.getUrl(), site.getPagesFetched());
+                site.setFetchRate((site.getPagesFetched() - previous) * 1000.0 / tickMillis);
+                currentPages.put(site.getUrl(), site.getPagesFetched());
+            }
+            previousPages.clear();
+            previousPages.putAll(currentPages);
+            IndexingProgressResponse progress = new IndexingProgressResponse();
+            progress.setIndexing(!sites.isEmpty());
+            progress.setSites(sites);
+            if (progress.equals(lastProgress)) {
+                return;
+            }
+            lastProgress = progress;
+            emitters.forEach(emitter -> send(emitter, progress));
+        } catch (RuntimeException ex) {
+            // следующий такт повторит снимок, планировщик не должен останавливаться
+        }
+    }
+
+
+    private void send(SseEmitter emitter, IndexingProgressResponse progress) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(progress));
+        } catch (IOException | IllegalStateException ex) {
+            emitters.remove(emitter);
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+}
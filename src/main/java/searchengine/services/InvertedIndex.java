@@ -0,0 +1,239 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import searchengine.model.Site;
+import searchengine.repositories.IndexBatchRepository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Копия index_model в памяти: для каждой леммы — отсортированные id страниц, ранги и позиции.
+ * Загружается при старте приложения и обновляется вместе с записью индексов в базу.
+ * Вместе с индексом поддерживается статистика для BM25: число проиндексированных
+ * страниц сайта, их суммарная длина и длина каждой страницы в значимых словах,
+ * для отсечения частых лемм — распределение лемм сайта по документной частоте,
+ * а для подсказок — префиксное дерево лемм сайта с теми же частотами в качестве весов.
+ */
+@Component
+@RequiredArgsConstructor
+public class InvertedIndex implements SmartInitializingSingleton {
+
+    private final IndexBatchRepository indexBatchRepository;
+
+    private final Map<String, Integer> siteIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, Integer>> lemmaIds = new ConcurrentHashMap<>();
+    private static final PostingList emptyPostings = new PostingList().snapshot();
+
+    private final Map<Integer, PostingList> postings = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Integer, Integer> documentCounts = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> totalLengths = new ConcurrentHashMap<>();
+    private volatile int[] pageLengths = new int[1024];
+    private final Map<Integer, DocumentFrequencyHistogram> frequencyHistograms = new ConcurrentHashMap<>();
+    private final Map<Integer, LemmaTrie> lemmaTries = new ConcurrentHashMap<>();
+
+
+    /**
+     * Загрузка идёт после создания всех бинов (и обновления схемы), но до запуска
+     * веб-сервера, поэтому запросы поиска и индексации не застают её на полпути.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    private void load() {
+        indexBatchRepository.loadSites(rs -> {
+            siteIds.put(rs.getString("url"), rs.getInt("id"));
+        });
+        Map<Integer, Integer> lemmaSites = new HashMap<>();
+        indexBatchRepository.loadLemmas(rs -> {
+            lemmaIds.computeIfAbsent(rs.getInt("site_id"), id -> new ConcurrentHashMap<>())
+                    .put(rs.getString("lemma"), rs.getInt("id"));
+            lemmaSites.put(rs.getInt("id"), rs.getInt("site_id"));
+            getTrie(rs.getInt("site_id")).update(rs.getString("lemma"), rs.getInt("frequency"));
+        });
+        indexBatchRepository.loadIndexes(rs -> {
+            postings.computeIfAbsent(rs.getInt("lemma_id"), id -> new PostingList())
+                    .add(rs.getInt("page_id"), rs.getFloat("lemma_rank"), rs.getBytes("positions"));
+            addPageLength(lemmaSites.get(rs.getInt("lemma_id")), rs.getInt("page_id"), (int) rs.getFloat("lemma_rank"));
+        });
+        lemmaIds.forEach((siteId, siteLemmas) -> {
+            DocumentFrequencyHistogram histogram = getHistogram(siteId);
+            for (Integer lemmaId : siteLemmas.values()) {
+                PostingList postingList = postings.get(lemmaId);
+                histogram.move(0, postingList == null ? 0 : postingList.size());
+            }
+        });
+        nextGeneration();
+    }
+
+
+    public Integer getSiteId(String siteUrl) {
+        return siteIds.get(siteUrl);
+    }
+
+    /**
+     * Число строк lemmas сайта: набор загружается из таблицы и меняется вместе с ней.
+     */
+    public int getLemmaCount(int siteId) {
+        Map<String, Integer> siteLemmas = lemmaIds.get(siteId);
+        return siteLemmas == null ? 0 : siteLemmas.size();
+    }
+
+    public Integer getLemmaId(int siteId, String lemma) {
+        Map<String, Integer> siteLemmas = lemmaIds.get(siteId);
+        return siteLemmas == null ? null : siteLemmas.get(lemma);
+    }
+
+    /**
+     * Неизменяемый снимок списка страниц леммы, который можно читать без блокировок.
+     */
+    public PostingList getPostings(int lemmaId) {
+        PostingList postingList = postings.get(lemmaId);
+        return postingList == null ? emptyPostings : postingList.snapshot();
+    }
+
+
+    public int getDocumentCount(int siteId) {
+        return documentCounts.getOrDefault(siteId, 0);
+    }
+
+    public float getAverageLength(int siteId) {
+        int documentCount = getDocumentCount(siteId);
+        return documentCount == 0 ? 0 : (float) totalLengths.getOrDefault(siteId, 0L) / documentCount;
+    }
+
+    /**
+     * Длина страницы в значимых словах — сумма рангов всех её лемм.
+     */
+    public int getPageLength(int pageId) {
+        int[] lengths = pageLengths;
+        return pageId < lengths.length ? lengths[pageId] : 0;
+    }
+
+
+    /**
+     * Документная частота, которую превышает лишь доля лемм сайта 1 - fraction.
+     */
+    public int getFrequencyPercentile(int siteId, double fraction) {
+        return getHistogram(siteId).percentile(fraction);
+    }
+
+
+    public List<LemmaSuggestion> suggest(int siteId, String prefix, int limit) {
+        return getTrie(siteId).complete(prefix, limit);
+    }
+
+
+    /**
+     * Номер поколения индекса: один на все сайты и только растёт, меняется после
+     * каждой записи и удаления, поэтому результаты, посчитанные на старом поколении,
+     * перестают находиться в кэше — в том числе после переиндексации сайта с новым id.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void nextGeneration() {
+        generation.incrementAndGet();
+    }
+
+
+    public void add(Site site, String lemma, int lemmaId, int pageId, float rank, byte[] positions) {
+        siteIds.putIfAbsent(site.getUrl(), site.getId());
+        lemmaIds.computeIfAbsent(site.getId(), id -> new ConcurrentHashMap<>()).putIfAbsent(lemma, lemmaId);
+        PostingList postingList = postings.computeIfAbsent(lemmaId, id -> new PostingList());
+        if (postingList.add(pageId, rank, positions)) {
+            int frequency = postingList.size();
+            getHistogram(site.getId()).move(frequency - 1, frequency);
+            getTrie(site.getId()).update(lemma, frequency);
+        }
+        addPageLength(site.getId(), pageId, (int) rank);
+    }
+
+
+    /**
+     * @param pageLemmas id и текст лемм страницы
+     */
+    public void removePage(int siteId, int pageId, Map<Integer, String> pageLemmas) {
+        for (Map.Entry<Integer, String> lemma : pageLemmas.entrySet()) {
+            PostingList postingList = postings.get(lemma.getKey());
+            if (postingList != null && postingList.remove(pageId)) {
+                int frequency = postingList.size();
+                getHistogram(siteId).move(frequency + 1, frequency);
+                getTrie(siteId).update(lemma.getValue(), frequency);
+            }
+        }
+        removePageLength(siteId, pageId);
+    }
+
+
+    public void removeEmptyLemmas(int siteId) {
+        Map<String, Integer> siteLemmas = lemmaIds.get(siteId);
+        if (siteLemmas == null) {
+            return;
+        }
+        siteLemmas.values().removeIf(lemmaId -> {
+            PostingList postingList = postings.get(lemmaId);
+            if (postingList == null || postingList.size() == 0) {
+                postings.remove(lemmaId);
+                return true;
+            }
+            return false;
+        });
+    }
+
+
+    public void removeSite(int siteId) {
+        Map<String, Integer> siteLemmas = lemmaIds.remove(siteId);
+        if (siteLemmas != null) {
+            for (Integer lemmaId : siteLemmas.values()) {
+                PostingList postingList = postings.remove(lemmaId);
+                for (int i = 0; postingList != null && i < postingList.size(); i++) {
+                    removePageLength(siteId, postingList.pageId(i));
+                }
+            }
+        }
+        siteIds.values().remove(siteId);
+        frequencyHistograms.remove(siteId);
+        lemmaTries.remove(siteId);
+        nextGeneration();
+    }
+
+
+    private DocumentFrequencyHistogram getHistogram(int siteId) {
+        return frequencyHistograms.computeIfAbsent(siteId, id -> new DocumentFrequencyHistogram());
+    }
+
+    private LemmaTrie getTrie(int siteId) {
+        return lemmaTries.computeIfAbsent(siteId, id -> new LemmaTrie());
+    }
+
+    private synchronized void addPageLength(int siteId, int pageId, int length) {
+        if (pageId >= pageLengths.length) {
+            pageLengths = Arrays.copyOf(pageLengths, Math.max(pageId + 1, pageLengths.length * 2));
+        }
+        if (pageLengths[pageId] == 0) {
+            documentCounts.merge(siteId, 1, Integer::sum);
+        }
+        pageLengths[pageId] += length;
+        totalLengths.merge(siteId, (long) length, Long::sum);
+    }
+
+    private synchronized void removePageLength(int siteId, int pageId) {
+        if (pageId >= pageLengths.length || pageLengths[pageId] == 0) {
+            return;
+        }
+        documentCounts.merge(siteId, -1, Integer::sum);
+        totalLengths.merge(siteId, (long) -pageLengths[pageId], Long::sum);
+        pageLengths[pageId] = 0;
+    }
+}
@@ -1,24 +1,49 @@
 package searchengine.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
-import org.jsoup.Jsoup;
+import org.springframework.stereotype.Component;
+
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.regex.Pattern;
 
+/**
+ * Единый анализатор текста приложения. Словари загружаются один раз при старте;
+ * кириллические слова разбираются русской морфологией, латинские — английской.
+ */
+@Component
 public class LemmaFinder {
 
-    public static LuceneMorphology luceneMorph;
-    static {
-        try {
-            luceneMorph = new RussianLuceneMorphology();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    private static final Pattern russianServicePartsOfSpeech = Pattern.compile("[а-яА-Я]+\\|[nolp]\\s[ПРЕДЛМЖСОЮЗЧАТ]+");
+    private static final Pattern englishServicePartsOfSpeech = Pattern.compile("\\S+\\|\\S+\\s(CONJ|PREP|ARTICLE|INT|PART)");
+    private static final int wordFormCacheSize = 200_000;
+
+    private final LuceneMorphology russianMorphology;
+    private final LuceneMorphology englishMorphology;
+
+    /**
+     * Общий для индексации и поиска кэш разборов словоформ.
+     * Кириллические и латинские слова не пересекаются, поэтому кэш один на оба языка.
+     */
+    private final Cache<WordKey, WordForm> wordForms = Caffeine.newBuilder()
+            .maximumSize(wordFormCacheSize)
+            .recordStats()
+            .build();
+
+    public LemmaFinder(MeterRegistry registry) throws IOException {
+        russianMorphology = new RussianLuceneMorphology();
+        englishMorphology = new EnglishLuceneMorphology();
+        CaffeineCacheMetrics.monitor(registry, wordForms, "lemma.wordforms");
     }
-    private static final String wordRegex = "\\s*[^а-яА-Я]\\s*";
-    private static final String unnecessaryPartsOfSpeech = "[а-яА-Я]+\\|[nolp]\\s[ПРЕДЛМЖСОЮЗЧАТ]+";
 
 
     public HashMap<String, Integer> getLemmasCollection(String text){
@@ -27,44 +52,99 @@ public class LemmaFinder {
         if(text.isEmpty()) {
             return lemmas;
         }
-        List<String> words = divisionOfTextIntoWords(removeTagsFromText(text));
-        for (String word : words) {
-            if (word.isBlank() || !isCorrectWordForm(word)) {
+        WordTokenizer tokenizer = new WordTokenizer(text);
+        while (tokenizer.next()) {
+            WordForm wordForm = getWordForm(tokenizer.wordKey(), tokenizer.isLatin());
+            if (wordForm.isServicePart() || wordForm.getNormalForm() == null) {
                 continue;
             }
-            List<String> normalForms = luceneMorph.getNormalForms(word);
-            if (normalForms.isEmpty()) {
+            lemmas.merge(wordForm.getNormalForm(), 1, Integer::sum);
+        }
+        return lemmas;
+    }
+
+
+    /**
+     * Вхождения каждой леммы текста: порядковые номера слов и смещения в символах.
+     * Нумеруются все слова, включая служебные, поэтому расстояние между леммами
+     * совпадает с расстоянием в тексте.
+     */
+    public HashMap<String, LemmaOccurrences> getLemmaOccurrences(String text) {
+        HashMap<String, int[]> buffers = new HashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer(text);
+        while (tokenizer.next()) {
+            WordForm wordForm = getWordForm(tokenizer.wordKey(), tokenizer.isLatin());
+            if (wordForm.isServicePart() || wordForm.getNormalForm() == null) {
                 continue;
             }
-            String normalWord = normalForms.get(0);
-            if (lemmas.containsKey(normalWord)) {
-                lemmas.put(normalWord, lemmas.get(normalWord) + 1);
-            } else {
-                lemmas.put(normalWord, 1);
+            // в нулевой ячейке буфера — число занятых ячеек, далее пары «позиция, смещение»
+            int[] buffer = buffers.get(wordForm.getNormalForm());
+            if (buffer == null) {
+                buffer = new int[5];
+                buffers.put(wordForm.getNormalForm(), buffer);
+            } else if (buffer[0] + 2 >= buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffers.put(wordForm.getNormalForm(), buffer);
             }
+            buffer[++buffer[0]] = tokenizer.position();
+            buffer[++buffer[0]] = tokenizer.start();
         }
-        return lemmas;
+        HashMap<String, LemmaOccurrences> occurrences = new HashMap<>();
+        buffers.forEach((lemma, buffer) -> {
+            int count = buffer[0] / 2;
+            int[] positions = new int[count];
+            int[] offsets = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = buffer[1 + 2 * i];
+                offsets[i] = buffer[2 + 2 * i];
+            }
+            occurrences.put(lemma, new LemmaOccurrences(positions, offsets));
+        });
+        return occurrences;
     }
 
 
-    private List<String> divisionOfTextIntoWords(String text) {
-        return List.of(text.toLowerCase().split(wordRegex));
+    public CacheStats getWordFormCacheStats() {
+        return wordForms.stats();
     }
 
 
-    private boolean isCorrectWordForm(String word) {
-        List<String> wordInfo = luceneMorph.getMorphInfo(word);
-        for (String morphInfo : wordInfo) {
-            if (morphInfo.matches(unnecessaryPartsOfSpeech)) {
-                return false;
-            }
+    /**
+     * При попадании в кэш строка слова не создаётся; при промахе в кэш кладётся
+     * копия ключа, а строка нужна только для морфологического разбора.
+     */
+    private WordForm getWordForm(WordKey word, boolean latin) {
+        WordForm wordForm = wordForms.getIfPresent(word);
+        if (wordForm != null) {
+            return wordForm;
+        }
+        String text = word.toString();
+        wordForm = latin ?
+                analyzeWord(text, englishMorphology, englishServicePartsOfSpeech) :
+                analyzeWord(text, russianMorphology, russianServicePartsOfSpeech);
+        wordForms.put(word.copy(), wordForm);
+        return wordForm;
+    }
+
+
+    private WordForm analyzeWord(String word, LuceneMorphology morphology, Pattern servicePartsOfSpeech) {
+        if (!morphology.checkString(word)) {
+            return new WordForm(false, null);
         }
-        return true;
+        List<String> normalForms = morphology.getNormalForms(word);
+        String normalForm = normalForms.isEmpty() ? null : normalForms.get(0);
+        return new WordForm(isServicePart(word, morphology, servicePartsOfSpeech), normalForm);
     }
 
 
-    private String removeTagsFromText(String html) {
-        return Jsoup.parse(html).text();
+    private boolean isServicePart(String word, LuceneMorphology morphology, Pattern servicePartsOfSpeech) {
+        List<String> wordInfo = morphology.getMorphInfo(word);
+        for (String morphInfo : wordInfo) {
+            if (servicePartsOfSpeech.matcher(morphInfo).matches()) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
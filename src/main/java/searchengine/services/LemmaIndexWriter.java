@@ -0,0 +1,90 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.model.Site;
+import searchengine.repositories.IndexBatchRepository;
+
+import java.util.*;
+
+/**
+ * Записывает леммы и индексы пачкой страниц: одна пакетная вставка-обновление
+ * частот в lemmas и одна пакетная вставка строк в index_model на всю пачку.
+ */
+@Component
+@RequiredArgsConstructor
+public class LemmaIndexWriter {
+
+    private final IndexBatchRepository indexBatchRepository;
+    private final InvertedIndex invertedIndex;
+
+
+    /**
+     * @param lemmaIds кэш идентификаторов лемм сайта, дополняется найденными в базе
+     * @return количество лемм, которых не было в кэше
+     */
+    public int write(Site site, List<PageLemmas> pages, Map<String, Integer> lemmaIds) {
+        SortedMap<String, Integer> frequencyDeltas = new TreeMap<>();
+        for (PageLemmas page : pages) {
+            for (String lemma : page.getLemmas().keySet()) {
+                frequencyDeltas.merge(lemma, 1, Integer::sum);
+            }
+        }
+        if (frequencyDeltas.isEmpty()) {
+            return 0;
+        }
+        indexBatchRepository.upsertLemmaFrequencies(site.getId(), frequencyDeltas);
+
+        List<String> unknownLemmas = new ArrayList<>();
+        for (String lemma : frequencyDeltas.keySet()) {
+            if (!lemmaIds.containsKey(lemma)) {
+                unknownLemmas.add(lemma);
+            }
+        }
+        lemmaIds.putAll(indexBatchRepository.findLemmaIds(site.getId(), unknownLemmas));
+
+        List<Object[]> indexRows = new ArrayList<>();
+        List<String> rowLemmas = new ArrayList<>();
+        for (PageLemmas page : pages) {
+            for (Map.Entry<String, LemmaOccurrences> entry : page.getLemmas().entrySet()) {
+                Integer lemmaId = lemmaIds.get(entry.getKey());
+                if (lemmaId == null) {
+                    // частота уже учтена в чужой строке, и без индекса страницу не найти
+                    // по этой лемме: такую запись нельзя пропустить молча
+                    throw new IllegalStateException("Не найден id леммы «" + entry.getKey()
+                            + "» сайта " + site.getUrl());
+                }
+                LemmaOccurrences occurrences = entry.getValue();
+                indexRows.add(new Object[]{page.getPageId(), lemmaId, (float) occurrences.count(),
+                        PositionCodec.encode(occurrences.getPositions()), PositionCodec.encode(occurrences.getOffsets())});
+                rowLemmas.add(entry.getKey());
+            }
+        }
+        indexBatchRepository.insertIndexes(indexRows);
+        for (int i = 0; i < indexRows.size(); i++) {
+            Object[] row = indexRows.get(i);
+            invertedIndex.add(site, rowLemmas.get(i), (int) row[1], (int) row[0], (float) row[2], (byte[]) row[3]);
+        }
+        invertedIndex.nextGeneration();
+        return unknownLemmas.size();
+    }
+
+
+    /**
+     * Убирает вклад страницы в частоты лемм и её строки индекса.
+     */
+    public void removePage(Site site, int pageId) {
+        Map<Integer, String> pageLemmas = indexBatchRepository.findLemmasByPage(pageId);
+        indexBatchRepository.decrementLemmaFrequencies(pageId);
+        indexBatchRepository.deleteIndexes(pageId);
+        invertedIndex.removePage(site.getId(), pageId, pageLemmas);
+        invertedIndex.nextGeneration();
+    }
+
+
+    public void deleteUnusedLemmas(Site site) {
+        indexBatchRepository.deleteUnusedLemmas(site.getId());
+        invertedIndex.removeEmptyLemmas(site.getId());
+        invertedIndex.nextGeneration();
+    }
+}
@@ -0,0 +1,19 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Вхождения леммы в текст: порядковые номера слов и смещения начала слов в символах.
+ * Массивы параллельны и упорядочены по возрастанию.
+ */
+@Getter
+@RequiredArgsConstructor
+public class LemmaOccurrences {
+    private final int[] positions;
+    private final int[] offsets;
+
+    public int count() {
+        return positions.length;
+    }
+}
@@ -0,0 +1,14 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Продолжение префикса: лемма и число страниц сайта, на которых она встречается.
+ */
+@Getter
+@RequiredArgsConstructor
+public class LemmaSuggestion {
+    private final String lemma;
+    private final int weight;
+}
@@ -0,0 +1,127 @@
+package searchengine.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Префиксное дерево лемм сайта с весами — числом страниц, на которых встречается лемма.
+ * Каждый узел хранит наибольший вес в своём поддереве, поэтому лучшие продолжения
+ * префикса находятся обходом по убыванию этого веса без просмотра всего поддерева.
+ * Дочерние узлы лежат в массивах, упорядоченных по символу.
+ */
+public class LemmaTrie {
+
+    private final Node root = new Node();
+
+
+    /**
+     * Устанавливает вес леммы; вес 0 убирает лемму из подсказок.
+     */
+    public synchronized void update(String lemma, int weight) {
+        Node[] path = new Node[lemma.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < lemma.length(); i++) {
+            path[i + 1] = path[i].child(lemma.charAt(i), weight > 0);
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        Node node = path[lemma.length()];
+        node.weight = weight;
+        node.lemma = weight > 0 ? lemma : null;
+        for (int i = lemma.length(); i >= 0; i--) {
+            path[i].updateMaxWeight();
+        }
+    }
+
+
+    /**
+     * До limit лемм с заданным префиксом по убыванию веса.
+     */
+    public synchronized List<LemmaSuggestion> complete(String prefix, int limit) {
+        List<LemmaSuggestion> suggestions = new ArrayList<>();
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i), false);
+        }
+        if (node == null || node.maxWeight == 0) {
+            return suggestions;
+        }
+        // в очереди лежат и узлы (по весу поддерева), и готовые леммы (по собственному весу)
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(
+                (first, second) -> Integer.compare(second.weight, first.weight));
+        queue.add(new Candidate(node.maxWeight, node, null));
+        while (!queue.isEmpty() && suggestions.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.lemma != null) {
+                suggestions.add(new LemmaSuggestion(candidate.lemma, candidate.weight));
+                continue;
+            }
+            Node current = candidate.node;
+            if (current.weight > 0) {
+                queue.add(new Candidate(current.weight, null, current.lemma));
+            }
+            for (int i = 0; i < current.childCount; i++) {
+                Node child = current.children[i];
+                if (child.maxWeight > 0) {
+                    queue.add(new Candidate(child.maxWeight, child, null));
+                }
+            }
+        }
+        return suggestions;
+    }
+
+
+    private static class Candidate {
+        private final int weight;
+        private final Node node;
+        private final String lemma;
+
+        private Candidate(int weight, Node node, String lemma) {
+            this.weight = weight;
+            this.node = node;
+            this.lemma = lemma;
+        }
+    }
+
+
+    private static class Node {
+        private char[] symbols = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private String lemma;
+        private int weight;
+        private int maxWeight;
+
+        private Node child(char symbol, boolean create) {
+            int index = Arrays.binarySearch(symbols, 0, childCount, symbol);
+            if (index >= 0) {
+                return children[index];
+            }
+            if (!create) {
+                return null;
+            }
+            index = -index - 1;
+            if (childCount == symbols.length) {
+                symbols = Arrays.copyOf(symbols, childCount + 2);
+                children = Arrays.copyOf(children, childCount + 2);
+            }
+            System.arraycopy(symbols, index, symbols, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            symbols[index] = symbol;
+            children[index] = new Node();
+            childCount++;
+            return children[index];
+        }
+
+        private void updateMaxWeight() {
+            int max = weight;
+            for (int i = 0; i < childCount; i++) {
+                max = Math.max(max, children[i].maxWeight);
+            }
+            maxWeight = max;
+        }
+    }
+}
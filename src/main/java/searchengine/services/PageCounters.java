@@ -0,0 +1,62 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import searchengine.repositories.IndexBatchRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Число страниц каждого сайта без обращений к базе: при старте счётчики заполняются
+ * запросом COUNT, дальше их меняют обход, индексация отдельной страницы и удаление сайта.
+ */
+@Component
+@RequiredArgsConstructor
+public class PageCounters implements SmartInitializingSingleton {
+
+    private final IndexBatchRepository indexBatchRepository;
+
+    private final Map<Integer, AtomicInteger> pages = new ConcurrentHashMap<>();
+
+
+    /**
+     * Загрузка идёт после создания всех бинов (и обновления схемы), но до запуска
+     * веб-сервера, поэтому запросы поиска и индексации не застают её на полпути.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    private void load() {
+        indexBatchRepository.countPagesBySite(rs -> {
+            getCounter(rs.getInt("site_id")).set(rs.getInt("pages"));
+        });
+    }
+
+
+    public int getPages(int siteId) {
+        AtomicInteger counter = pages.get(siteId);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public void pageAdded(int siteId) {
+        getCounter(siteId).incrementAndGet();
+    }
+
+    public void pageRemoved(int siteId) {
+        getCounter(siteId).decrementAndGet();
+    }
+
+    public void removeSite(int siteId) {
+        pages.remove(siteId);
+    }
+
+
+    private AtomicInteger getCounter(int siteId) {
+        return pages.computeIfAbsent(siteId, id -> new AtomicInteger());
+    }
+}
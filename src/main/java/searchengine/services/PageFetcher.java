@@ -0,0 +1,34 @@
+package searchengine.services;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Загрузка страниц по сети. Реализация не должна занимать поток на время ожидания ответа.
+ */
+public interface PageFetcher {
+
+    /**
+     * Условный запрос: если страница не изменилась с указанной версии,
+     * вернётся ответ с кодом 304 без тела. Любой из валидаторов может быть null.
+     */
+    CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified);
+
+    default CompletableFuture<FetchedPage> fetch(String url) {
+        return fetch(url, null, null);
+    }
+
+    default FetchedPage fetchBlocking(String url) throws IOException {
+        FetchedPage fetchedPage;
+        try {
+            fetchedPage = fetch(url).join();
+        } catch (CompletionException ex) {
+            throw new IOException(ex.getCause());
+        }
+        if (!fetchedPage.isSuccessful()) {
+            throw new IOException("Страница " + url + " недоступна, код ответа " + fetchedPage.getStatusCode());
+        }
+        return fetchedPage;
+    }
+}
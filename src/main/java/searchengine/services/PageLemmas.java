@@ -0,0 +1,16 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Леммы страницы с их вхождениями; число вхождений — ранг леммы.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PageLemmas {
+    private final int pageId;
+    private final Map<String, LemmaOccurrences> lemmas;
+}
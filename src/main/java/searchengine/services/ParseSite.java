@@ -1,119 +1,243 @@
 package searchengine.services;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.springframework.dao.IncorrectResultSizeDataAccessException;
-import searchengine.model.IndexModel;
-import searchengine.model.Lemma;
 import searchengine.model.Page;
+import searchengine.model.PageContent;
 import searchengine.model.Site;
-import searchengine.repositories.IndexModelRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageContentRepository;
 import searchengine.repositories.PageRepository;
+import searchengine.repositories.PageVersion;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 
 
 
 @RequiredArgsConstructor
-public class ParseSite extends RecursiveTask<TreeSet<Page>> {
+public class ParseSite extends RecursiveAction {
+
+    private static final int lemmaBatchSize = 20;
 
     private static PageRepository pageRepository;
-    private static LemmaRepository lemmaRepository;
-    private static IndexModelRepository indexModelRepository;
+    private static PageContentRepository pageContentRepository;
+    private static LemmaIndexWriter lemmaIndexWriter;
+    private static PageCounters pageCounters;
+    private static PolitenessScheduler politenessScheduler;
+    private static PageFetcher pageFetcher;
+    private static LemmaFinder lemmaFinder;
+    private static CrawlMetrics crawlMetrics;
 
-    private final Site site;
+    private final CrawlSession session;
     private final String url;
-    private static final TreeSet<String> linksList = new TreeSet<>();
-    private static final TreeSet<Page> pagesSet = new TreeSet<>();
-    private volatile static boolean isStoppedIndexing;
+    private final FetchedPage fetchedPage;
+    private final PageVersion knownPage;
+
+
+    /**
+     * Ставит страницу в очередь сайта: запрос уйдёт, когда наступит его слот
+     * с учётом задержки между запросами к хосту, а разбор ответа выполнит пул сессии.
+     */
+    public static void submit(CrawlSession session, String url) {
+        session.taskSubmitted();
+        politenessScheduler.schedule(session.getHost(), session.getCrawlDelay(), () -> fetch(session, url));
+    }
+
+
+    private static void fetch(CrawlSession session, String url) {
+        if (session.isStopped()) {
+            session.taskFinished();
+            return;
+        }
+        PageVersion knownPage = session.getKnownPage(url);
+        CompletableFuture<FetchedPage> request;
+        Timer.Sample fetchSample = Timer.start();
+        try {
+            request = knownPage == null || session.isReindexLink(url) ? pageFetcher.fetch(url) :
+                    pageFetcher.fetch(url, knownPage.getEtag(), knownPage.getLastModified());
+        } catch (RuntimeException ex) {
+            registerError(session, url);
+            session.taskFinished();
+            return;
+        }
+        request.whenComplete((fetchedPage, ex) -> {
+            fetchSample.stop(crawlMetrics.getFetchTimer());
+            if (ex != null) {
+                registerError(session, url);
+                session.taskFinished();
+                return;
+            }
+            try {
+                session.getWorkerPool().execute(new ParseSite(session, url, fetchedPage, knownPage));
+            } catch (RejectedExecutionException rejected) {
+                session.taskFinished();
+            }
+        });
+    }
+
+
+    private static void registerError(CrawlSession session, String url) {
+        session.getErrorsCount().incrementAndGet();
+        crawlMetrics.getErrors().increment();
+        if (url.equals(session.getSite().getUrl())) {
+            session.fail("Ошибка индексикации: главная страница сайта недоступна");
+        }
+    }
 
 
     @Override
-    protected TreeSet<Page> compute() {
+    protected void compute() {
+        Site site = session.getSite();
         try {
-            if (isIsStoppedIndexing()) {
-                Thread.sleep(100);
-                throw new InterruptedException();
+            if (session.isStopped()) {
+                return;
             }
-            List<ParseSite> taskList = new ArrayList<>();
-            if (!linksList.contains(url)) {
-                linksList.add(url);
-                Thread.sleep(500);
-                Document document = getDocument(url);
-                System.out.println(document.baseUri());
-                createPage(document, site);
-                Elements elements = document.select("a[href]");
-                for (Element element : elements) {
-                    String link = element.attr("abs:href");
-                    if (isCorrectLink(link)) {
-                        ParseSite parseSite = new ParseSite(site, link);
-                        parseSite.fork();
-                        taskList.add(parseSite);
-                    }
+            Document document;
+            if (fetchedPage.isNotModified() && knownPage != null) {
+                document = loadStoredDocument();
+            } else if (!fetchedPage.isSuccessful()) {
+                registerError(session, url);
+                session.getCheckpoint().done(url);
+                return;
+            } else {
+                Timer.Sample parseSample = Timer.start();
+                document = fetchedPage.parse();
+                parseSample.stop(crawlMetrics.getParseTimer());
+                if (knownPage == null) {
+                    createPage(document, site);
+                } else if (session.isReindexLink(url)
+                        || !fetchedPage.getContentHash().equals(knownPage.getContentHash())) {
+                    updatePage(document, site);
+                } else {
+                    session.getPagesCount().incrementAndGet();
                 }
-                for (ParseSite task : taskList) {
-                    task.join();
+            }
+            Elements elements = document.select("a[href]");
+            for (Element element : elements) {
+                String link = element.attr("abs:href");
+                if (isCorrectLink(link) && session.markVisited(link)) {
+                    session.getCheckpoint().queued(link);
+                    submit(session, link);
                 }
             }
-        } catch (InterruptedException ex) {
-            throw new RuntimeException("Индексация остановлена пользователем");
+            session.getCheckpoint().done(url);
         } catch (IOException e) {
-            throw new RuntimeException("Ошибка индексикации: страница сайта недоступна");
+            registerError(session, url);
+            session.getCheckpoint().done(url);
+        } catch (RuntimeException ex) {
+            session.getErrorsCount().incrementAndGet();
+            session.fail(ex.getMessage());
+        } finally {
+            session.taskFinished();
         }
-        return pagesSet;
     }
 
 
-    private void createPage(Document document, Site site) throws IOException {
+    private void createPage(Document document, Site site) {
+        Timer.Sample saveSample = Timer.start();
         Page page = new Page();
-        page.setContent(document.html());
-        page.setCode(document.connection().response().statusCode());
-        page.setSite(site);
-        page.setPath(document.baseUri().replaceAll(site.getUrl(), "/"));
-        pagesSet.add(page);
+        fillPage(page, document, site);
+        pageRepository.save(page);
+        PageContent pageContent = new PageContent();
+        pageContent.setPage(page);
+        pageContent.setHtml(document.html());
+        pageContentRepository.save(pageContent);
+        pageCounters.pageAdded(site.getId());
+        saveSample.stop(crawlMetrics.getPageSaveTimer());
+        session.getPagesCount().incrementAndGet();
+        site.setStatusTime(LocalDateTime.now());
+        createLemmaAndIndex(page);
+    }
+
+
+    /**
+     * Перезаписывает изменившуюся страницу: сначала снимает вклад старой версии
+     * в частоты лемм, затем индексирует новую.
+     */
+    private void updatePage(Document document, Site site) {
+        Timer.Sample saveSample = Timer.start();
+        Page page = pageRepository.findById(knownPage.getId()).orElseGet(Page::new);
+        fillPage(page, document, site);
         pageRepository.save(page);
+        PageContent pageContent = pageContentRepository.findById(page.getId()).orElseGet(PageContent::new);
+        pageContent.setPage(page);
+        pageContent.setHtml(document.html());
+        pageContentRepository.save(pageContent);
+        session.getWriteLock().lock();
+        try {
+            lemmaIndexWriter.removePage(site, page.getId());
+        } finally {
+            session.getWriteLock().unlock();
+        }
+        saveSample.stop(crawlMetrics.getPageSaveTimer());
+        session.getPagesCount().incrementAndGet();
         site.setStatusTime(LocalDateTime.now());
-        createLemmaAndIndex(page, site);
+        createLemmaAndIndex(page);
+    }
+
+
+    private void fillPage(Page page, Document document, Site site) {
+        String title = document.title();
+        page.setTitle(title.substring(0, Math.min(title.length(), 500)));
+        page.setText(document.text());
+        page.setCode(fetchedPage.getStatusCode());
+        page.setSite(site);
+        // путь по запрошенной ссылке, а не по адресу после редиректа: по нему страница
+        // ищется среди известных и сверяется с посещёнными ссылками
+        page.setPath(session.toPath(url));
+        page.setEtag(fetchedPage.getEtag());
+        page.setLastModified(fetchedPage.getLastModified());
+        page.setContentHash(fetchedPage.getContentHash());
+    }
+
+
+    private Document loadStoredDocument() throws IOException {
+        PageContent pageContent = pageContentRepository.findById(knownPage.getId())
+                .orElseThrow(() -> new IOException("Страница " + url + " не найдена в базе"));
+        session.getPagesCount().incrementAndGet();
+        return Jsoup.parse(pageContent.getHtml(), url);
     }
 
 
-    private void createLemmaAndIndex(Page page, Site site) {
-        LemmaFinder lemmaFinder = new LemmaFinder();
-        HashMap<String, Integer> lemmas = lemmaFinder.getLemmasCollection(page.getContent());
-        for (Map.Entry<String, Integer> entry : lemmas.entrySet()) {
-            IndexModel indexModel = new IndexModel();
-            Lemma lemma = new Lemma();
+    private void createLemmaAndIndex(Page page) {
+        HashMap<String, LemmaOccurrences> lemmas = crawlMetrics.getLemmatizeTimer()
+                .record(() -> lemmaFinder.getLemmaOccurrences(page.getText()));
+        List<PageLemmas> batch = session.addPendingLemmas(new PageLemmas(page.getId(), lemmas), lemmaBatchSize);
+        if (!batch.isEmpty()) {
             try {
-                Lemma lemmaFromDb = lemmaRepository.findByLemmaAndSite_Id(entry.getKey(), site.getId());
-                if (lemmaFromDb != null && lemmaFromDb.getSite().getId().equals(site.getId())) {
-                    lemmaFromDb.setFrequency(lemmaFromDb.getFrequency() + 1);
-                    lemmaRepository.save(lemmaFromDb);
-                    indexModel.setLemma(lemmaFromDb);
-                } else {
-                    lemma.setSite(site);
-                    lemma.setLemma(entry.getKey());
-                    lemma.setFrequency(1);
-                    lemmaRepository.save(lemma);
-                    indexModel.setLemma(lemma);
-                }
-                indexModel.setPage(page);
-                indexModel.setRank(entry.getValue());
-                indexModelRepository.save(indexModel);
-            } catch (IncorrectResultSizeDataAccessException ex) {
-                ex.getMessage();
+                writeLemmasAndIndexes(session, batch);
+            } finally {
+                session.batchWritten();
             }
         }
     }
 
 
+    /**
+     * Записывает пачку лемм сайта. Пачки одной сессии пишутся по очереди,
+     * чтобы вставки-обновления частот не блокировали друг друга.
+     */
+    public static void writeLemmasAndIndexes(CrawlSession session, List<PageLemmas> batch) {
+        session.getWriteLock().lock();
+        try {
+            int newLemmas = crawlMetrics.getIndexWriteTimer()
+                    .record(() -> lemmaIndexWriter.write(session.getSite(), batch, session.getLemmaIds()));
+            session.getLemmasCount().addAndGet(newLemmas);
+        } finally {
+            session.getWriteLock().unlock();
+        }
+    }
+
+
     private boolean isCorrectLink (String link) {
-        return link.startsWith(site.getUrl()) && !linksList.contains(link) &&
+        return link.startsWith(session.getSite().getUrl()) &&
                 !link.contains("#") && !link.contains("?") &&
                 !link.contains(".jpg") && !link.contains(".pdf") &&
                 !link.contains(".xlsx") && !link.contains(".doc") &&
@@ -121,32 +245,36 @@ public class ParseSite extends RecursiveTask<TreeSet<Page>> {
                 !link.contains(".fiq") && !link.contains(".png");
     }
 
-    private Document getDocument(String url) throws IOException {
-        return Jsoup.connect(url)
-                .userAgent("Mozilla/5.0 (Windows; U; WindowsNT 5.1; en-US; rv1.8.1.6)" +
-                        " Gecko/20070725 Firefox/2.0.0.6")
-                .referrer("http://www.google.com").get();
+    public static void setPageRepository(PageRepository pageRepository) {
+        ParseSite.pageRepository = pageRepository;
+    }
+
+    public static void setPageContentRepository(PageContentRepository pageContentRepository) {
+        ParseSite.pageContentRepository = pageContentRepository;
     }
 
+    public static void setLemmaIndexWriter(LemmaIndexWriter lemmaIndexWriter) {
+        ParseSite.lemmaIndexWriter = lemmaIndexWriter;
+    }
 
-    public static void setPageRepository(PageRepository pageRepository) {
-        ParseSite.pageRepository = pageRepository;
+    public static void setPageCounters(PageCounters pageCounters) {
+        ParseSite.pageCounters = pageCounters;
     }
 
-    public static void setLemmaRepository(LemmaRepository lemmaRepository) {
-        ParseSite.lemmaRepository = lemmaRepository;
+    public static void setCrawlMetrics(CrawlMetrics crawlMetrics) {
+        ParseSite.crawlMetrics = crawlMetrics;
     }
 
-    public static void setIndexModelRepository(IndexModelRepository indexModelRepository) {
-        ParseSite.indexModelRepository = indexModelRepository;
+    public static void setPolitenessScheduler(PolitenessScheduler politenessScheduler) {
+        ParseSite.politenessScheduler = politenessScheduler;
     }
 
-    public static boolean isIsStoppedIndexing() {
-        return isStoppedIndexing;
+    public static void setPageFetcher(PageFetcher pageFetcher) {
+        ParseSite.pageFetcher = pageFetcher;
     }
 
-    public static void setIsStoppedIndexing(boolean isStoppedIndexing) {
-        ParseSite.isStoppedIndexing = isStoppedIndexing;
+    public static void setLemmaFinder(LemmaFinder lemmaFinder) {
+        ParseSite.lemmaFinder = lemmaFinder;
     }
 }
 
@@ -0,0 +1,98 @@
+package searchengine.services;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Фраза из запроса: леммы в порядке следования и их смещения относительно первой.
+ * При slop = 0 леммы должны стоять на тех же расстояниях, что и в запросе;
+ * при slop > 0 достаточно, чтобы все они уместились в окно длиной фразы плюс slop слов.
+ */
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class Phrase {
+    private final List<String> lemmas;
+    private final int[] offsets;
+    private final int slop;
+
+
+    /**
+     * @param termPositions позиции на странице для каждой леммы фразы, в порядке {@link #getLemmas()}
+     */
+    public boolean matches(int[][] termPositions) {
+        return slop == 0 ? matchesExactly(termPositions) : matchesWithin(termPositions);
+    }
+
+
+    private boolean matchesExactly(int[][] termPositions) {
+        for (int position : termPositions[0]) {
+            int start = position - offsets[0];
+            boolean found = true;
+            for (int term = 1; term < offsets.length && found; term++) {
+                found = Arrays.binarySearch(termPositions[term], start + offsets[term]) >= 0;
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Скользящее окно по всем вхождениям лемм фразы в порядке позиций. Одинаковые леммы
+     * фразы образуют одну группу, и в окне должно быть столько разных её вхождений,
+     * сколько раз лемма встречается во фразе: одно слово не засчитывается за два.
+     */
+    private boolean matchesWithin(int[][] termPositions) {
+        int window = offsets[offsets.length - 1] - offsets[0] + slop;
+        Map<String, Integer> groups = new HashMap<>();
+        int[] needed = new int[lemmas.size()];
+        int[][] groupPositions = new int[lemmas.size()][];
+        for (int term = 0; term < lemmas.size(); term++) {
+            int group = groups.computeIfAbsent(lemmas.get(term), lemma -> groups.size());
+            needed[group]++;
+            groupPositions[group] = termPositions[term];
+        }
+        int eventCount = 0;
+        for (int group = 0; group < groups.size(); group++) {
+            eventCount += groupPositions[group].length;
+        }
+        // позиция в старших 32 битах, номер группы в младших
+        long[] events = new long[eventCount];
+        int index = 0;
+        for (int group = 0; group < groups.size(); group++) {
+            for (int position : groupPositions[group]) {
+                events[index++] = ((long) position << 32) | group;
+            }
+        }
+        Arrays.sort(events);
+
+        int[] inWindow = new int[groups.size()];
+        int satisfied = 0;
+        int left = 0;
+        for (long event : events) {
+            int group = (int) event;
+            if (++inWindow[group] == needed[group]) {
+                satisfied++;
+            }
+            while ((event >> 32) - (events[left] >> 32) > window) {
+                int leftGroup = (int) events[left++];
+                if (inWindow[leftGroup]-- == needed[leftGroup]) {
+                    satisfied--;
+                }
+            }
+            if (satisfied == groups.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Распределяет запросы к одному хосту по времени с заданным интервалом.
+ * Задача не усыпляет рабочий поток, а ждёт в очереди хоста; таймер выдаёт из неё
+ * по одной задаче, и слот следующего запроса отсчитывается от момента выдачи.
+ */
+@Component
+public class PolitenessScheduler {
+
+    private final Map<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "politeness-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    public void schedule(String host, long delayMillis, Runnable task) {
+        HostQueue hostQueue = hostQueues.computeIfAbsent(host, key -> new HostQueue(System.nanoTime()));
+        synchronized (hostQueue) {
+            hostQueue.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            hostQueue.tasks.add(task);
+            if (hostQueue.dispatch == null) {
+                scheduleDispatch(hostQueue);
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает очередь хоста при остановке обхода: отложенные задачи не выполняются,
+     * а новый обход того же хоста начинается без ожидания старых слотов.
+     */
+    public void cancel(String host) {
+        HostQueue hostQueue = hostQueues.remove(host);
+        if (hostQueue == null) {
+            return;
+        }
+        synchronized (hostQueue) {
+            hostQueue.tasks.clear();
+            if (hostQueue.dispatch != null) {
+                hostQueue.dispatch.cancel(false);
+                hostQueue.dispatch = null;
+            }
+        }
+    }
+
+
+    private void scheduleDispatch(HostQueue hostQueue) {
+        long delay = Math.max(0, hostQueue.nextSlot - System.nanoTime());
+        hostQueue.dispatch = timer.schedule(() -> dispatch(hostQueue), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch(HostQueue hostQueue) {
+        Runnable task;
+        synchronized (hostQueue) {
+            task = hostQueue.tasks.poll();
+            if (task == null) {
+                hostQueue.dispatch = null;
+                return;
+            }
+            hostQueue.nextSlot = System.nanoTime() + hostQueue.delayNanos;
+            if (hostQueue.tasks.isEmpty()) {
+                hostQueue.dispatch = null;
+            } else {
+                scheduleDispatch(hostQueue);
+            }
+        }
+        task.run();
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+
+    private static class HostQueue {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private long delayNanos;
+        private long nextSlot;
+        private ScheduledFuture<?> dispatch;
+
+        private HostQueue(long nextSlot) {
+            this.nextSlot = nextSlot;
+        }
+    }
+}
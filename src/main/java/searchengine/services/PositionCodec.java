@@ -0,0 +1,60 @@
+package searchengine.services;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Сжатие возрастающих позиций и смещений слов: хранятся разности соседних значений
+ * в формате varint — по 7 бит в байте, старший бит означает продолжение.
+ * Разности в тексте обычно малы, поэтому значение занимает один-два байта.
+ */
+public final class PositionCodec {
+
+    private static final byte[] empty = new byte[0];
+
+    private PositionCodec() {
+    }
+
+
+    public static byte[] encode(int[] positions) {
+        if (positions == null || positions.length == 0) {
+            return empty;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(positions.length * 2);
+        int previous = 0;
+        for (int position : positions) {
+            int delta = position - previous;
+            previous = position;
+            while ((delta & ~0x7F) != 0) {
+                out.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out.write(delta);
+        }
+        return out.toByteArray();
+    }
+
+
+    public static int[] decode(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return new int[0];
+        }
+        int[] positions = new int[encoded.length];
+        int count = 0;
+        int previous = 0;
+        int index = 0;
+        while (index < encoded.length) {
+            int delta = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = encoded[index++];
+                delta |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            previous += delta;
+            positions[count++] = previous;
+        }
+        return Arrays.copyOf(positions, count);
+    }
+}
@@ -0,0 +1,155 @@
+package searchengine.services;
+
+import java.util.Arrays;
+
+/**
+ * Список страниц леммы, упорядоченный по id страницы, с рангами и сжатыми позициями
+ * леммы в тексте страницы ({@link PositionCodec}) в параллельных массивах.
+ * Изменяется под собственной блокировкой; читатели получают неизменяемый снимок
+ * {@link #snapshot()}, который копируется не чаще одного раза на изменение списка.
+ */
+public class PostingList {
+
+    private int[] pageIds;
+    private float[] ranks;
+    private byte[][] positions;
+    private int size;
+    private volatile PostingList snapshot;
+
+    public PostingList() {
+        this(4);
+    }
+
+    private PostingList(int capacity) {
+        pageIds = new int[capacity];
+        ranks = new float[capacity];
+        positions = new byte[capacity][];
+    }
+
+
+    /**
+     * @return true, если страница добавлена, и false, если у неё только обновлён ранг
+     */
+    public synchronized boolean add(int pageId, float rank, byte[] pagePositions) {
+        if (size > 0 && pageIds[size - 1] >= pageId) {
+            int index = Arrays.binarySearch(pageIds, 0, size, pageId);
+            snapshot = null;
+            if (index >= 0) {
+                ranks[index] = rank;
+                positions[index] = pagePositions;
+                return false;
+            }
+            insert(-index - 1, pageId, rank, pagePositions);
+            return true;
+        }
+        snapshot = null;
+        insert(size, pageId, rank, pagePositions);
+        return true;
+    }
+
+
+    public synchronized boolean remove(int pageId) {
+        int index = Arrays.binarySearch(pageIds, 0, size, pageId);
+        if (index < 0) {
+            return false;
+        }
+        snapshot = null;
+        System.arraycopy(pageIds, index + 1, pageIds, index, size - index - 1);
+        System.arraycopy(ranks, index + 1, ranks, index, size - index - 1);
+        System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+        positions[--size] = null;
+        return true;
+    }
+
+
+    /**
+     * Снимок списка, который больше не меняется и читается без блокировок.
+     * Пока список не изменился, все запросы получают один и тот же снимок.
+     */
+    public PostingList snapshot() {
+        PostingList current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                PostingList copy = new PostingList(Math.max(size, 1));
+                System.arraycopy(pageIds, 0, copy.pageIds, 0, size);
+                System.arraycopy(ranks, 0, copy.ranks, 0, size);
+                System.arraycopy(positions, 0, copy.positions, 0, size);
+                copy.size = size;
+                copy.snapshot = copy;
+                snapshot = copy;
+            }
+            return snapshot;
+        }
+    }
+
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int pageId(int index) {
+        return pageIds[index];
+    }
+
+    public float rank(int index) {
+        return ranks[index];
+    }
+
+    /**
+     * Возрастающие порядковые номера слов страницы, в которых встречается лемма.
+     */
+    public int[] positions(int index) {
+        return PositionCodec.decode(positions[index]);
+    }
+
+    /**
+     * Позиция страницы в списке или отрицательное значение, если её нет.
+     */
+    public int indexOf(int pageId) {
+        return Arrays.binarySearch(pageIds, 0, size, pageId);
+    }
+
+
+    /**
+     * Галопирующий поиск: первая позиция не раньше from, где id страницы не меньше pageId,
+     * или size(), если такой нет. Шаг удваивается, пока не перешагнёт цель, затем
+     * выполняется двоичный поиск в последнем интервале, поэтому проход по всему списку
+     * возрастающими pageId стоит O(k log(n/k)) для k обращений.
+     */
+    public int advance(int from, int pageId) {
+        if (from >= size || pageIds[from] >= pageId) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < size && pageIds[high] < pageId) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, size);
+        int index = Arrays.binarySearch(pageIds, low + 1, high, pageId);
+        return index >= 0 ? index : -index - 1;
+    }
+
+
+    private void insert(int index, int pageId, float rank, byte[] pagePositions) {
+        if (size == pageIds.length) {
+            int capacity = pageIds.length + (pageIds.length >> 1) + 1;
+            pageIds = Arrays.copyOf(pageIds, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+        System.arraycopy(pageIds, index, pageIds, index + 1, size - index);
+        System.arraycopy(ranks, index, ranks, index + 1, size - index);
+        System.arraycopy(positions, index, positions, index + 1, size - index);
+        pageIds[index] = pageId;
+        ranks[index] = rank;
+        positions[index] = pagePositions;
+        size++;
+    }
+}
@@ -0,0 +1,17 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Лемма поискового запроса, найденная в индексе сайта, вместе со списком её страниц
+ * и обратной документной частотой для BM25.
+ */
+@Getter
+@RequiredArgsConstructor
+public class QueryLemma {
+    private final String lemma;
+    private final int lemmaId;
+    private final PostingList postings;
+    private final float idf;
+}
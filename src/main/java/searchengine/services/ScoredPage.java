@@ -0,0 +1,14 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Страница-кандидат с релевантностью BM25 по леммам запроса.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ScoredPage {
+    private final int pageId;
+    private final float relevance;
+}
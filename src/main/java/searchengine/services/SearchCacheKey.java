@@ -0,0 +1,21 @@
+package searchengine.services;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ключ кэша выдачи: отсортированный набор лемм и фразы запроса, сайт, окно выдачи
+ * и поколение индекса, на котором считалась выдача.
+ */
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class SearchCacheKey {
+    private final List<String> lemmas;
+    private final List<Phrase> phrases;
+    private final String siteUrl;
+    private final int offset;
+    private final int limit;
+    private final long generation;
+}
@@ -0,0 +1,31 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Время этапов поиска: поиск лемм в индексе, пересечение списков страниц
+ * с подсчётом релевантности, отбор лучших страниц и построение сниппетов.
+ */
+@Getter
+@Component
+public class SearchMetrics {
+
+    private final Timer lemmaLookupTimer;
+    private final Timer intersectionTimer;
+    private final Timer rankingTimer;
+    private final Timer snippetTimer;
+
+
+    public SearchMetrics(MeterRegistry registry) {
+        lemmaLookupTimer = Timer.builder("search.lemmas").description("Поиск лемм запроса в индексе")
+                .register(registry);
+        intersectionTimer = Timer.builder("search.intersection").description("Пересечение списков страниц")
+                .register(registry);
+        rankingTimer = Timer.builder("search.ranking").description("Отбор лучших страниц").register(registry);
+        snippetTimer = Timer.builder("search.snippets").description("Загрузка страниц окна и сниппеты")
+                .register(registry);
+    }
+}
@@ -0,0 +1,42 @@
+package searchengine.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.dto.search.SearchResponse;
+
+/**
+ * Ограниченный кэш готовых ответов поиска. Записи не удаляются явно:
+ * после записи в индекс меняется поколение сайта, а вместе с ним и ключ.
+ */
+@Component
+public class SearchResultCache {
+
+    private final Cache<SearchCacheKey, SearchResponse> responses;
+
+
+    public SearchResultCache(SearchSettings searchSettings, MeterRegistry registry) {
+        responses = Caffeine.newBuilder()
+                .maximumSize(searchSettings.getResultCacheSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, responses, "search.results");
+    }
+
+
+    public SearchResponse get(SearchCacheKey key) {
+        return responses.getIfPresent(key);
+    }
+
+    public void put(SearchCacheKey key, SearchResponse response) {
+        responses.put(key, response);
+    }
+
+    public CacheStats getStats() {
+        return responses.stats();
+    }
+}
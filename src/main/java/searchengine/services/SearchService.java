@@ -3,5 +3,5 @@ package searchengine.services;
 import searchengine.dto.search.SearchResponse;
 
 public interface SearchService {
-    SearchResponse search(String query, String site);
+    SearchResponse search(String query, String site, int offset, int limit);
 }
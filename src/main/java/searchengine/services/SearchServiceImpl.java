@@ -1,78 +1,173 @@
 package searchengine.services;
 
 import lombok.AllArgsConstructor;
-import org.apache.lucene.morphology.LuceneMorphology;
-import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
 import searchengine.config.SiteConfig;
 import searchengine.config.SitesList;
 import searchengine.dto.search.SearchQueryResult;
 import searchengine.dto.search.SearchResponse;
-import searchengine.model.IndexModel;
-import searchengine.model.Lemma;
 import searchengine.model.Page;
-import searchengine.model.Site;
-import searchengine.repositories.IndexModelRepository;
-import searchengine.repositories.LemmaRepository;
-import searchengine.repositories.SiteRepository;
+import searchengine.repositories.IndexBatchRepository;
+import searchengine.repositories.PageRepository;
 
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class SearchServiceImpl implements SearchService{
 
-    private static final int maxNumberOfPages = 50;
+    private static final int defaultLimit = 20;
+    private static final int maxLimit = 100;
+    private static final float k1 = 1.2f;
+    private static final float b = 0.75f;
+    private static final Pattern phrasePattern = Pattern.compile("\"([^\"]*)\"(?:~(\\d{1,4}))?");
     private final SitesList sitesList;
+    private final SearchSettings searchSettings;
 
     @Autowired
-    private SiteRepository siteRepository;
+    private PageRepository pageRepository;
 
     @Autowired
-    private LemmaRepository lemmaRepository;
+    private LemmaFinder lemmaFinder;
 
     @Autowired
-    private IndexModelRepository indexModelRepository;
+    private InvertedIndex invertedIndex;
+
+    @Autowired
+    private IndexBatchRepository indexBatchRepository;
+
+    @Autowired
+    private SearchShardExecutor searchShardExecutor;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private SearchMetrics searchMetrics;
 
 
     @Override
-    public SearchResponse search(String query, String siteUrl) {
-            if (query.isEmpty()) {
-                return createSearchResponse(new ArrayList<>(), false);
+    public SearchResponse search(String query, String siteUrl, int offset, int limit) {
+            if (query == null || query.isEmpty()) {
+                return createSearchResponse(new ArrayList<>(), 0, false);
+            }
+            offset = Math.max(offset, 0);
+            limit = limit > 0 ? Math.min(limit, maxLimit) : defaultLimit;
+            List<String> lemmas = lemmaFinder.getLemmasCollection(query).keySet().stream().sorted().toList();
+            List<Phrase> phrases = parsePhrases(query);
+            // поколение читается до поиска: если индекс изменится по ходу, ответ
+            // попадёт в кэш под устаревшим ключом и больше не будет найден
+            SearchCacheKey cacheKey = new SearchCacheKey(lemmas, phrases, siteUrl, offset, limit,
+                    invertedIndex.getGeneration());
+            SearchResponse cachedResponse = searchResultCache.get(cacheKey);
+            if (cachedResponse != null) {
+                return cachedResponse;
             }
-            LemmaFinder lemmaFinder = new LemmaFinder();
-            List<String> lemmas = lemmaFinder.getLemmasCollection(query).keySet().stream().toList();
-            if(siteUrl == null) {
-                List<Lemma> sortedLemmasList = new ArrayList<>();
-                List<Page> pageList = new ArrayList<>();
-                for (SiteConfig siteConfig : sitesList.getSites()) {
-                    List<Lemma> lemmaList = new ArrayList<>(getSortedLemmaList(siteConfig.getUrl(), lemmas));
-                    pageList.addAll(findPagesWithLemmas(lemmaList));
-                    sortedLemmasList.addAll(lemmaList);
+            int topK = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            ShardResult result = siteUrl == null ? searchAllSites(lemmas, phrases, topK)
+                    : searchSite(siteUrl, lemmas, phrases, topK);
+            int windowOffset = offset;
+            List<SearchQueryResult> queryResults = searchMetrics.getSnippetTimer()
+                    .record(() -> createSearchQueryResult(result, windowOffset));
+            SearchResponse searchResponse = createSearchResponse(queryResults, result.getCount(), true);
+            if (result.isComplete()) {
+                searchResultCache.put(cacheKey, searchResponse);
+            }
+            return searchResponse;
+    }
+
+
+    /**
+     * Фразы запроса записываются в кавычках: "кошка на окне" ищет точную фразу,
+     * "кошка окно"~3 — обе леммы в пределах трёх лишних слов друг от друга.
+     * Фразы из одной леммы ничего не ограничивают и пропускаются.
+     */
+    private List<Phrase> parsePhrases(String query) {
+        List<Phrase> phrases = new ArrayList<>();
+        Matcher matcher = phrasePattern.matcher(query);
+        while (matcher.find()) {
+            List<Map.Entry<Integer, String>> terms = new ArrayList<>();
+            lemmaFinder.getLemmaOccurrences(matcher.group(1)).forEach((lemma, occurrences) -> {
+                for (int position : occurrences.getPositions()) {
+                    terms.add(Map.entry(position, lemma));
                 }
-                return createSearchResponse(createSearchQueryResult(pageList, sortedLemmasList), true);
+            });
+            if (terms.size() < 2) {
+                continue;
             }
-            List<Lemma> sortedLemmasList = getSortedLemmaList(siteUrl, lemmas);
-            List<Page> pageList = findPagesWithLemmas(sortedLemmasList);
-            return createSearchResponse(createSearchQueryResult(pageList, sortedLemmasList), true);
+            terms.sort(Map.Entry.comparingByKey());
+            int[] offsets = terms.stream().mapToInt(term -> term.getKey() - terms.get(0).getKey()).toArray();
+            int slop = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+            phrases.add(new Phrase(terms.stream().map(Map.Entry::getValue).toList(), offsets, slop));
+        }
+        return phrases;
+    }
+
+
+    /**
+     * Каждый сайт обрабатывается как отдельный шард на ограниченном пуле,
+     * после чего лучшие страницы шардов сливаются в общий top-K.
+     * Шарды, не успевшие к сроку, в выдачу не попадают.
+     */
+    private ShardResult searchAllSites(List<String> lemmas, List<Phrase> phrases, int topK) {
+        List<CompletableFuture<ShardResult>> shards = new ArrayList<>();
+        for (SiteConfig siteConfig : sitesList.getSites()) {
+            shards.add(searchShardExecutor.submit(() -> searchSite(siteConfig.getUrl(), lemmas, phrases, topK),
+                    ShardResult.timedOut()));
+        }
+        List<QueryLemma> sortedLemmasList = new ArrayList<>();
+        List<ScoredPage> shardTopPages = new ArrayList<>();
+        int count = 0;
+        boolean complete = true;
+        for (CompletableFuture<ShardResult> shard : shards) {
+            ShardResult shardResult = shard.join();
+            sortedLemmasList.addAll(shardResult.getLemmas());
+            shardTopPages.addAll(shardResult.getTopPages());
+            count += shardResult.getCount();
+            complete &= shardResult.isComplete();
+        }
+        return new ShardResult(sortedLemmasList, selectTopPages(shardTopPages, topK), count, complete);
+    }
+
+
+    private ShardResult searchSite(String siteUrl, List<String> lemmas, List<Phrase> phrases, int topK) {
+        Integer siteId = invertedIndex.getSiteId(siteUrl);
+        if (siteId == null) {
+            return new ShardResult(new ArrayList<>(), new ArrayList<>(), 0, true);
+        }
+        List<QueryLemma> sortedLemmasList = searchMetrics.getLemmaLookupTimer()
+                .record(() -> getSortedLemmaList(siteId, lemmas));
+        int commonFrequency = Math.max(searchSettings.getCommonLemmaMinPages(),
+                invertedIndex.getFrequencyPercentile(siteId, searchSettings.getCommonLemmaPercentile()));
+        List<ScoredPage> scoredPages = searchMetrics.getIntersectionTimer().record(() ->
+                findPagesWithLemmas(sortedLemmasList, phrases, commonFrequency, invertedIndex.getAverageLength(siteId)));
+        List<ScoredPage> topPages = searchMetrics.getRankingTimer().record(() -> selectTopPages(scoredPages, topK));
+        return new ShardResult(sortedLemmasList, topPages, scoredPages.size(), true);
     }
 
 
-    private List<Lemma> getSortedLemmaList (String siteUrl, List<String> lemmas) {
-        List<Lemma> sortedLemmasList = new ArrayList<>();
+    private List<QueryLemma> getSortedLemmaList (int siteId, List<String> lemmas) {
+        List<QueryLemma> sortedLemmasList = new ArrayList<>();
+        int documentCount = invertedIndex.getDocumentCount(siteId);
         for (String lemma : lemmas) {
-            Site site = siteRepository.findByUrl(siteUrl);
-            Lemma foundLemma = lemmaRepository.findByLemmaAndSite_Id(lemma, site.getId());
-            if (foundLemma != null && foundLemma.getFrequency() < maxNumberOfPages) {
-                sortedLemmasList.add(foundLemma);
+            Integer lemmaId = invertedIndex.getLemmaId(siteId, lemma);
+            if (lemmaId == null) {
+                continue;
+            }
+            PostingList postings = invertedIndex.getPostings(lemmaId);
+            if (postings.size() > 0) {
+                float idf = (float) Math.log(1 + (documentCount - postings.size() + 0.5) / (postings.size() + 0.5));
+                sortedLemmasList.add(new QueryLemma(lemma, lemmaId, postings, idf));
             }
         }
-        sortedLemmasList.sort(Comparator.comparingInt(Lemma::getFrequency));
+        sortedLemmasList.sort(Comparator.comparingInt(lemma -> lemma.getPostings().size()));
         if (sortedLemmasList.size() < lemmas.size()) {
             sortedLemmasList.clear();
             return sortedLemmasList;
@@ -81,182 +176,186 @@ public class SearchServiceImpl implements SearchService{
     }
 
 
-    private List<Page> findPagesWithLemmas (List<Lemma> lemmaList) {
+    /**
+     * Пересекает отсортированные списки страниц обязательных лемм, начиная с самой редкой:
+     * по остальным спискам курсоры продвигаются галопирующим поиском, поэтому
+     * стоимость определяется длиной самого короткого списка. Леммы, встречающиеся
+     * чаще commonFrequency страниц, не фильтруют выдачу, а только добавляют релевантность;
+     * самая редкая лемма запроса и леммы фраз обязательны всегда. Релевантность BM25
+     * считается за тот же проход по заранее известным idf лемм и длинам страниц,
+     * а фразы проверяются по позициям из списков, без загрузки текстов страниц.
+     */
+    private List<ScoredPage> findPagesWithLemmas (List<QueryLemma> lemmaList, List<Phrase> phrases,
+                                                  int commonFrequency, float averageLength) {
+        List<ScoredPage> scoredPages = new ArrayList<>();
         if(lemmaList.isEmpty()) {
-            return new ArrayList<>();
+            return scoredPages;
+        }
+        Map<String, Integer> lemmaIndexes = new HashMap<>();
+        for (int j = 0; j < lemmaList.size(); j++) {
+            lemmaIndexes.put(lemmaList.get(j).getLemma(), j);
+        }
+        boolean[] required = new boolean[lemmaList.size()];
+        required[0] = true;
+        for (int j = 1; j < lemmaList.size(); j++) {
+            required[j] = lemmaList.get(j).getPostings().size() <= commonFrequency;
         }
-        List<Page> pageList = new ArrayList<>(lemmaList.get(0).getPages());
-        if(lemmaList.size() == 1) {
-            return pageList;
+        for (Phrase phrase : phrases) {
+            phrase.getLemmas().forEach(lemma -> required[lemmaIndexes.get(lemma)] = true);
         }
-        for (Page page : pageList) {
-            for (Lemma lemma : lemmaList) {
-                if(!page.getLemmaList().contains(lemma)) {
-                    pageList.remove(page);
+        PostingList rarestPostings = lemmaList.get(0).getPostings();
+        int[] cursors = new int[lemmaList.size()];
+        for (int i = 0; i < rarestPostings.size(); i++) {
+            cursors[0] = i;
+            int pageId = rarestPostings.pageId(i);
+            float lengthNorm = averageLength == 0 ? k1
+                    : k1 * (1 - b + b * invertedIndex.getPageLength(pageId) / averageLength);
+            float relevance = bm25(lemmaList.get(0), rarestPostings.rank(i), lengthNorm);
+            boolean containsAllLemmas = true;
+            for (int j = 1; j < lemmaList.size(); j++) {
+                if (!required[j]) {
+                    continue;
+                }
+                PostingList postings = lemmaList.get(j).getPostings();
+                cursors[j] = postings.advance(cursors[j], pageId);
+                if (cursors[j] == postings.size()) {
+                    return scoredPages;
+                }
+                if (postings.pageId(cursors[j]) != pageId) {
+                    containsAllLemmas = false;
+                    break;
+                }
+                relevance += bm25(lemmaList.get(j), postings.rank(cursors[j]), lengthNorm);
+            }
+            if (!containsAllLemmas || !matchesPhrases(lemmaList, lemmaIndexes, cursors, phrases)) {
+                continue;
+            }
+            for (int j = 1; j < lemmaList.size(); j++) {
+                if (required[j]) {
+                    continue;
+                }
+                PostingList postings = lemmaList.get(j).getPostings();
+                cursors[j] = postings.advance(cursors[j], pageId);
+                if (cursors[j] < postings.size() && postings.pageId(cursors[j]) == pageId) {
+                    relevance += bm25(lemmaList.get(j), postings.rank(cursors[j]), lengthNorm);
                 }
             }
+            scoredPages.add(new ScoredPage(pageId, relevance));
+        }
+        return scoredPages;
+    }
+
+
+    private boolean matchesPhrases(List<QueryLemma> lemmaList, Map<String, Integer> lemmaIndexes,
+                                   int[] cursors, List<Phrase> phrases) {
+        for (Phrase phrase : phrases) {
+            int[][] termPositions = new int[phrase.getLemmas().size()][];
+            for (int term = 0; term < termPositions.length; term++) {
+                int j = lemmaIndexes.get(phrase.getLemmas().get(term));
+                termPositions[term] = lemmaList.get(j).getPostings().positions(cursors[j]);
+            }
+            if (!phrase.matches(termPositions)) {
+                return false;
+            }
         }
-        return pageList;
+        return true;
+    }
+
+
+    private float bm25(QueryLemma lemma, float frequency, float lengthNorm) {
+        return lemma.getIdf() * frequency * (k1 + 1) / (frequency + lengthNorm);
     }
 
 
-    private List<SearchQueryResult> createSearchQueryResult (List<Page> pageList, List<Lemma> sortedLemmasList) {
-        float maxRelevance = getMaxRelevance(pageList, sortedLemmasList);
+    /**
+     * Формирует только запрошенную страницу выдачи: из базы загружаются
+     * и получают сниппеты лишь страницы окна [offset, offset + limit).
+     */
+    private List<SearchQueryResult> createSearchQueryResult (ShardResult result, int offset) {
+        List<ScoredPage> topPages = result.getTopPages();
+        List<QueryLemma> sortedLemmasList = result.getLemmas();
+        if (offset >= topPages.size()) {
+            return new ArrayList<>();
+        }
+        List<ScoredPage> window = topPages.subList(offset, topPages.size());
+        List<Integer> pageIds = window.stream().map(ScoredPage::getPageId).toList();
+        Map<Integer, Page> pagesById = new HashMap<>();
+        for (Page page : pageRepository.findAllById(pageIds)) {
+            pagesById.put(page.getId(), page);
+        }
+        Map<Integer, Map<Integer, byte[]>> offsets = indexBatchRepository.findOffsets(pageIds,
+                sortedLemmasList.stream().map(QueryLemma::getLemmaId).collect(Collectors.toSet()));
         List<SearchQueryResult> queryResultsList = new ArrayList<>();
-        for (Page page : pageList) {
+        for (ScoredPage scoredPage : window) {
+            Page page = pagesById.get(scoredPage.getPageId());
+            if (page == null) {
+                continue;
+            }
             SearchQueryResult searchQueryResult = new SearchQueryResult();
             String url = page.getSite().getUrl();
-            Document doc = Jsoup.parse(page.getContent());
             searchQueryResult.setSite(url.substring(0, url.length() - 1));
             searchQueryResult.setSiteName(page.getSite().getName());
             searchQueryResult.setUri(page.getPath());
-            searchQueryResult.setTitle(doc.title());
-            searchQueryResult.setSnippet(createSnippet(sortedLemmasList, doc));
-            searchQueryResult.setRelevance(calculateRelevance(page,maxRelevance, sortedLemmasList));
+            searchQueryResult.setTitle(page.getTitle());
+            searchQueryResult.setSnippet(SnippetHighlighter.createSnippet(page.getText(),
+                    getLemmaOffsets(offsets.getOrDefault(page.getId(), Map.of()), sortedLemmasList)));
+            searchQueryResult.setRelevance(scoredPage.getRelevance());
             queryResultsList.add(searchQueryResult);
         }
-        queryResultsList.sort(Comparator.comparingDouble(SearchQueryResult ::getRelevance).reversed());
         return queryResultsList;
     }
 
 
-    private float calculateRelevance(Page page, float maxRelevance, List<Lemma> sortedLemmasList) {
-
-        float absLemmaRelevance = 0;
-        for (Lemma lemma : sortedLemmasList) {
-            IndexModel indexModel = indexModelRepository.findByLemma_idAndPage_Id(lemma.getId(), page.getId());
-            if (indexModel == null) {
-                continue;
-            }
-            absLemmaRelevance += indexModel.getRank();
+    /**
+     * Выбирает k самых релевантных страниц кучей размера k и возвращает их по убыванию релевантности.
+     */
+    private List<ScoredPage> selectTopPages(List<ScoredPage> scoredPages, int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
         }
-        return absLemmaRelevance / maxRelevance;
-    }
-
-
-    private float getMaxRelevance (List<Page> pageList, List<Lemma> sortedLemmasList) {
-
-        float absLemmaRelevance = 0;
-        float maxRelevance = 0;
-        for (Page page : pageList) {
-            for (Lemma lemma : sortedLemmasList) {
-                IndexModel indexModel = indexModelRepository.findByLemma_idAndPage_Id(lemma.getId(), page.getId());
-                if (indexModel == null) {
-                    continue;
-                }
-                absLemmaRelevance += indexModel.getRank();
+        Comparator<ScoredPage> byRelevance = Comparator.comparingDouble(ScoredPage::getRelevance)
+                .thenComparing(ScoredPage::getPageId, Comparator.reverseOrder());
+        PriorityQueue<ScoredPage> heap = new PriorityQueue<>(Math.max(1, Math.min(k, scoredPages.size())), byRelevance);
+        for (ScoredPage scoredPage : scoredPages) {
+            if (heap.size() < k) {
+                heap.add(scoredPage);
+            } else if (byRelevance.compare(scoredPage, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(scoredPage);
             }
-            if (maxRelevance < absLemmaRelevance) {
-                maxRelevance = absLemmaRelevance;
-            }
-            absLemmaRelevance = 0;
         }
-        return maxRelevance;
+        List<ScoredPage> topPages = new ArrayList<>(heap);
+        topPages.sort(byRelevance.reversed());
+        return topPages;
     }
 
 
-    private SearchResponse createSearchResponse (List<SearchQueryResult> queryResultsList, Boolean isResult) {
+    private SearchResponse createSearchResponse (List<SearchQueryResult> queryResultsList, int count, Boolean isResult) {
         SearchResponse searchResponse = new SearchResponse();
         if(!isResult) {
             searchResponse.setResult(false);
             return searchResponse;
         }
         searchResponse.setResult(true);
-        searchResponse.setCount(queryResultsList.size());
+        searchResponse.setCount(count);
         searchResponse.setData(queryResultsList);
 
         return searchResponse;
     }
 
 
-    private String createSnippet(List<Lemma> sortedLemmasList, Document doc)  {
-
-        String content = doc.text();
-        List<String> contentWords = Arrays.stream(content.split("[ -]")).toList();
-        Map<String, String> contentWordsWithLemmas = getContentWordsWithLemmas(contentWords);
-        Map<String, Integer> oneIndexOfEachLemma = new TreeMap<>();
-        List<Integer> allIndexesLemmas = new ArrayList<>();
-        for (Lemma lemma : sortedLemmasList) {
-            for (Map.Entry<String, String> WordWithLemma : contentWordsWithLemmas.entrySet()) {
-                if (!WordWithLemma.getValue().equals(lemma.getLemma())) {
-                    continue;
-                }
-                for (int i = 0; i < contentWords.size(); i++) {
-                    if (contentWords.get(i).equals(WordWithLemma.getKey())) {
-                        allIndexesLemmas.add(i);
-                        oneIndexOfEachLemma.put(WordWithLemma.getValue(), i);
-                    }
-                }
-            }
-        }
-        return getSnippet(contentWords, oneIndexOfEachLemma, allIndexesLemmas);
-    }
-
-
-    private Map<String, String> getContentWordsWithLemmas(List<String> contentWords) {
-
-        Map<String, String> contentWordsWithLemmas = new HashMap<>();
-        LuceneMorphology luceneMorph;
-        try {
-            luceneMorph = new RussianLuceneMorphology();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        String regexWord = "[^А-Яа-я]";
-
-        for (String word : contentWords) {
-            if(word.length() < 2) {
-                contentWordsWithLemmas.put(word, word);
-                continue;
-            }
-            String wordWithoutSigns = word.toLowerCase().replaceAll(regexWord, "");
-            if (wordWithoutSigns.isEmpty()) {
-                contentWordsWithLemmas.put(word, word);
-                continue;
-            }
-            List<String> wordBaseFormsList = luceneMorph.getNormalForms(wordWithoutSigns);
-            if(wordBaseFormsList.isEmpty()) {
-                contentWordsWithLemmas.put(word, word);
-                continue;
-            }
-            String wordBaseForms = wordBaseFormsList.get(0);
-            contentWordsWithLemmas.put(word, wordBaseForms);
-        }
-        return contentWordsWithLemmas;
-    }
-
-
-    private String getSnippet(List<String> contentWords,
-                              Map<String, Integer> oneIndexOfEachLemma,
-                              List<Integer> allIndexesLemmas) {
-        StringBuilder stringBuilder = new StringBuilder();
-        List<Integer> repeatedLemmas = new ArrayList<>();
-        int wordCount = 5;
-        for (Map.Entry<String, Integer> indexLemma : oneIndexOfEachLemma.entrySet()) {
-            if(oneIndexOfEachLemma.size() > 4) {
-                wordCount = 3;
-            }
-            if(repeatedLemmas.contains(indexLemma.getValue())) {
-                continue;
-            }
-            for (int i = indexLemma.getValue() - wordCount; i < indexLemma.getValue() + wordCount; i++) {
-                if (i < 0 || i > contentWords.size()) {
-                    continue;
-                }
-                if (i == indexLemma.getValue()) {
-                    stringBuilder.append("<b>").append(contentWords.get(i)).append("</b>").append(" ");
-                    continue;
-                }
-                if(allIndexesLemmas.contains(i)) {
-                    stringBuilder.append("<b>").append(contentWords.get(i)).append("</b>").append(" ");
-                    repeatedLemmas.add(i);
-                    continue;
-                }
-                stringBuilder.append(contentWords.get(i)).append(" ");
+    /**
+     * Смещения вхождений лемм запроса берутся из index_model одним запросом на всё окно выдачи.
+     */
+    private List<int[]> getLemmaOffsets(Map<Integer, byte[]> pageOffsets, List<QueryLemma> sortedLemmasList) {
+        Map<String, int[]> offsetsByLemma = new LinkedHashMap<>();
+        for (QueryLemma lemma : sortedLemmasList) {
+            byte[] offsets = pageOffsets.get(lemma.getLemmaId());
+            if (offsets != null) {
+                offsetsByLemma.put(lemma.getLemma(), PositionCodec.decode(offsets));
             }
-            stringBuilder.append("... ");
         }
-        return stringBuilder.toString();
+        return new ArrayList<>(offsetsByLemma.values());
     }
 
 }
@@ -0,0 +1,54 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный пул для параллельного поиска по сайтам-шардам.
+ * Шард, не уложившийся в отведённое время, заменяется запасным результатом.
+ */
+@Component
+public class SearchShardExecutor {
+
+    private final long shardTimeout;
+    private final ThreadPoolExecutor executor;
+
+
+    public SearchShardExecutor(SearchSettings searchSettings) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        shardTimeout = searchSettings.getShardTimeout();
+        executor = new ThreadPoolExecutor(searchSettings.getShardThreads(), searchSettings.getShardThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(searchSettings.getShardQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-shard-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+
+    public <T> CompletableFuture<T> submit(Supplier<T> shardTask, T fallback) {
+        try {
+            return CompletableFuture.supplyAsync(shardTask, executor)
+                    .completeOnTimeout(fallback, shardTimeout, TimeUnit.MILLISECONDS)
+                    .exceptionally(throwable -> fallback);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(fallback);
+        }
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
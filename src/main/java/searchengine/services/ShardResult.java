@@ -0,0 +1,25 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Результат поиска по одному сайту: лучшие страницы шарда и общее число найденных страниц.
+ * Неполный результат означает, что часть шардов не успела ответить.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ShardResult {
+    private final List<QueryLemma> lemmas;
+    private final List<ScoredPage> topPages;
+    private final int count;
+    private final boolean complete;
+
+
+    public static ShardResult timedOut() {
+        return new ShardResult(new ArrayList<>(), new ArrayList<>(), 0, false);
+    }
+}
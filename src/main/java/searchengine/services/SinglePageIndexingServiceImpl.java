@@ -1,7 +1,6 @@
 package searchengine.services;
 
 import lombok.AllArgsConstructor;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -9,15 +8,14 @@ import searchengine.config.SiteConfig;
 import searchengine.config.SitesList;
 import searchengine.dto.indexing.SinglePageIndexingResponse;
 import searchengine.model.*;
-import searchengine.repositories.IndexModelRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageContentRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 @Service
 @AllArgsConstructor
@@ -30,10 +28,19 @@ public class SinglePageIndexingServiceImpl implements SinglePageIndexingService
     private SiteRepository siteRepository;
 
     @Autowired
-    private LemmaRepository lemmaRepository;
+    private PageContentRepository pageContentRepository;
 
     @Autowired
-    private IndexModelRepository indexModelRepository;
+    private LemmaIndexWriter lemmaIndexWriter;
+
+    @Autowired
+    private PageFetcher pageFetcher;
+
+    @Autowired
+    private LemmaFinder lemmaFinder;
+
+    @Autowired
+    private PageCounters pageCounters;
 
     private final SitesList sitesList;
 
@@ -46,7 +53,9 @@ public class SinglePageIndexingServiceImpl implements SinglePageIndexingService
             return singlePageIndexingResponse;
         }
         try {
-            Page page = createNewPage(site, url);
+            FetchedPage fetchedPage = pageFetcher.fetchBlocking(url);
+            Document document = fetchedPage.parse();
+            Page page = createNewPage(site, url, fetchedPage, document);
             createLemmasAndIndexes(site, page);
         } catch (IOException e) {
             singlePageIndexingResponse.setResult(false);
@@ -82,46 +91,37 @@ public class SinglePageIndexingServiceImpl implements SinglePageIndexingService
     }
 
 
-    private Page createNewPage (Site site, String url) throws IOException {
+    private Page createNewPage (Site site, String url, FetchedPage fetchedPage, Document document) {
         Page page = new Page();
-        Document document = Jsoup.connect(url).get();
         int lastSymbol = url.indexOf("/", 8);
         String urlWithoutRoot = url.substring(lastSymbol);
-        Page pageFromDb = pageRepository.findByPath(urlWithoutRoot);
+        Page pageFromDb = pageRepository.findBySite_IdAndPath(site.getId(), urlWithoutRoot);
         if(pageFromDb != null) {
+            lemmaIndexWriter.removePage(site, pageFromDb.getId());
             pageRepository.delete(pageFromDb);
+            pageCounters.pageRemoved(site.getId());
         }
         page.setSite(site);
         page.setPath(url.replaceAll(site.getUrl(), "/"));
-        page.setCode(document.connection().response().statusCode());
-        page.setContent(document.html());
+        page.setCode(fetchedPage.getStatusCode());
+        String title = document.title();
+        page.setTitle(title.substring(0, Math.min(title.length(), 500)));
+        page.setText(document.text());
+        page.setEtag(fetchedPage.getEtag());
+        page.setLastModified(fetchedPage.getLastModified());
+        page.setContentHash(fetchedPage.getContentHash());
         pageRepository.save(page);
+        pageCounters.pageAdded(site.getId());
+        PageContent pageContent = new PageContent();
+        pageContent.setPage(page);
+        pageContent.setHtml(document.html());
+        pageContentRepository.save(pageContent);
         return page;
     }
 
-    private void createLemmasAndIndexes(Site site, Page page) throws IOException {
-        LemmaFinder lemmaFinder = new LemmaFinder();
-        HashMap<String, Integer> lemmas = lemmaFinder.getLemmasCollection(page.getContent());
-        for (Map.Entry<String, Integer> entry : lemmas.entrySet()) {
-            IndexModel indexModel = new IndexModel();
-            Lemma lemma = new Lemma();
-            Lemma lemmaFromDb = lemmaRepository.findByLemmaAndSite_Id(entry.getKey(), site.getId());
-            if(lemmaFromDb != null) {
-                lemmaFromDb.setFrequency(lemmaFromDb.getFrequency() + 1);
-                lemmaRepository.save(lemmaFromDb);
-                indexModel.setLemma(lemmaFromDb);
-            }else {
-                lemma.setSite(site);
-                lemma.setLemma(entry.getKey());
-                lemma.setFrequency(1);
-                lemmaRepository.save(lemma);
-                indexModel.setLemma(lemma);
-            }
-            indexModel.setPage(page);
-            indexModel.setRank(entry.getValue());
-            indexModelRepository.save(indexModel);
-
-        }
+    private void createLemmasAndIndexes(Site site, Page page) {
+        HashMap<String, LemmaOccurrences> lemmas = lemmaFinder.getLemmaOccurrences(page.getText());
+        lemmaIndexWriter.write(site, List.of(new PageLemmas(page.getId(), lemmas)), new HashMap<>());
     }
 
 }
@@ -0,0 +1,136 @@
+package searchengine.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Строит сниппет по смещениям вхождений лемм запроса, записанным при индексации.
+ * Вхождения сливаются в один упорядоченный список, скользящее окно выбирает участок
+ * с наибольшим числом разных лемм (при равенстве — вхождений), и этот участок
+ * вырезается из текста страницы. Текст целиком не разбирается, поэтому стоимость
+ * определяется числом вхождений и длиной сниппета.
+ */
+public final class SnippetHighlighter {
+
+    private static final int snippetLength = 240;
+
+    private SnippetHighlighter() {
+    }
+
+
+    /**
+     * @param lemmaOffsets смещения вхождений для каждой леммы запроса, по возрастанию
+     */
+    public static String createSnippet(String text, List<int[]> lemmaOffsets) {
+        int[][] occurrences = mergeOccurrences(text, lemmaOffsets);
+        if (occurrences.length == 0) {
+            return cut(text, 0, Math.min(text.length(), snippetLength), occurrences, 0, 0);
+        }
+        int[] counts = new int[lemmaOffsets.size()];
+        int distinct = 0;
+        int bestScore = -1;
+        int bestLeft = 0;
+        int bestRight = 0;
+        int left = 0;
+        for (int right = 0; right < occurrences.length; right++) {
+            if (counts[occurrences[right][1]]++ == 0) {
+                distinct++;
+            }
+            while (left < right && wordEnd(text, occurrences[right][0]) - occurrences[left][0] > snippetLength) {
+                if (--counts[occurrences[left][1]] == 0) {
+                    distinct--;
+                }
+                left++;
+            }
+            int score = distinct * occurrences.length + (right - left + 1);
+            if (score > bestScore) {
+                bestScore = score;
+                bestLeft = left;
+                bestRight = right;
+            }
+        }
+        int windowStart = occurrences[bestLeft][0];
+        int windowEnd = wordEnd(text, occurrences[bestRight][0]);
+        int start = Math.max(0, windowStart - (snippetLength - (windowEnd - windowStart)) / 2);
+        int end = Math.min(text.length(), Math.max(windowEnd, start + snippetLength));
+        return cut(text, wordStartAfter(text, start, windowStart), wordEndBefore(text, end, windowEnd),
+                occurrences, bestLeft, bestRight);
+    }
+
+
+    /**
+     * Пары «смещение, номер леммы», упорядоченные по смещению.
+     */
+    private static int[][] mergeOccurrences(String text, List<int[]> lemmaOffsets) {
+        List<int[]> occurrences = new ArrayList<>();
+        for (int lemma = 0; lemma < lemmaOffsets.size(); lemma++) {
+            for (int offset : lemmaOffsets.get(lemma)) {
+                if (offset < text.length()) {
+                    occurrences.add(new int[]{offset, lemma});
+                }
+            }
+        }
+        int[][] merged = occurrences.toArray(new int[0][]);
+        Arrays.sort(merged, (first, second) -> Integer.compare(first[0], second[0]));
+        return merged;
+    }
+
+
+    private static String cut(String text, int start, int end, int[][] occurrences, int first, int last) {
+        StringBuilder snippet = new StringBuilder(end - start + 32);
+        if (start > 0) {
+            snippet.append("... ");
+        }
+        int copied = start;
+        for (int i = first; i <= last && i < occurrences.length; i++) {
+            int wordStart = occurrences[i][0];
+            int wordEnd = wordEnd(text, wordStart);
+            if (wordStart < copied || wordEnd > end) {
+                continue;
+            }
+            snippet.append(text, copied, wordStart).append("<b>").append(text, wordStart, wordEnd).append("</b>");
+            copied = wordEnd;
+        }
+        snippet.append(text, copied, end);
+        if (end < text.length()) {
+            snippet.append(" ...");
+        }
+        return snippet.toString();
+    }
+
+
+    private static int wordEnd(String text, int offset) {
+        int end = offset;
+        while (end < text.length() && WordTokenizer.isLetter(text.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Начало первого целого слова не раньше offset, но не дальше limit.
+     */
+    private static int wordStartAfter(String text, int offset, int limit) {
+        if (offset == 0) {
+            return 0;
+        }
+        while (offset < limit && !Character.isWhitespace(text.charAt(offset - 1))) {
+            offset++;
+        }
+        return offset;
+    }
+
+    /**
+     * Конец последнего целого слова не позже offset, но не раньше limit.
+     */
+    private static int wordEndBefore(String text, int offset, int limit) {
+        if (offset == text.length()) {
+            return offset;
+        }
+        while (offset > limit && !Character.isWhitespace(text.charAt(offset))) {
+            offset--;
+        }
+        return offset;
+    }
+}
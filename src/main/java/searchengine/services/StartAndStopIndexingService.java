@@ -1,10 +1,16 @@
 package searchengine.services;
 
+import searchengine.dto.indexing.SiteIndexingProgress;
 import searchengine.dto.indexing.StartIndexingResponse;
 import searchengine.dto.indexing.StopIndexingResponse;
 
+import java.util.List;
+
 
 public interface StartAndStopIndexingService {
-    StartIndexingResponse startIndexing();
+    StartIndexingResponse startIndexing(boolean incremental);
+    StartIndexingResponse resumeIndexing();
     StopIndexingResponse stopIndexing();
+    boolean isIndexing();
+    List<SiteIndexingProgress> getProgress();
 }
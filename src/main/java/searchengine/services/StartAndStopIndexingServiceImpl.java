@@ -5,15 +5,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import searchengine.config.SiteConfig;
 import searchengine.config.SitesList;
+import searchengine.dto.indexing.SiteIndexingProgress;
 import searchengine.dto.indexing.StartIndexingResponse;
 import searchengine.dto.indexing.StopIndexingResponse;
 import searchengine.model.*;
-import searchengine.repositories.IndexModelRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageContentRepository;
 import searchengine.repositories.PageRepository;
+import searchengine.repositories.PageVersion;
 import searchengine.repositories.SiteRepository;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 
 
@@ -30,21 +34,57 @@ public class StartAndStopIndexingServiceImpl implements StartAndStopIndexingServ
     private PageRepository pageRepository;
 
     @Autowired
-    private LemmaRepository lemmaRepository;
+    private PageContentRepository pageContentRepository;
 
     @Autowired
-    private IndexModelRepository indexModelRepository;
+    private LemmaIndexWriter lemmaIndexWriter;
+
+    @Autowired
+    private PageCounters pageCounters;
+
+    @Autowired
+    private CrawlMetrics crawlMetrics;
+
+    @Autowired
+    private PolitenessScheduler politenessScheduler;
+
+    @Autowired
+    private PageFetcher pageFetcher;
+
+    @Autowired
+    private LemmaFinder lemmaFinder;
+
+    @Autowired
+    private InvertedIndex invertedIndex;
+
+    private static final int finalCheckpointAttempts = 50;
+    private static final long finalCheckpointRetryMillis = 100;
+    private static final long shutdownTimeoutMillis = 30000;
 
     private static ForkJoinPool forkJoinPool;
+    private static final Map<String, CrawlSession> sessions = new ConcurrentHashMap<>();
 
 
     @Override
-    public StartIndexingResponse startIndexing() {
+    public synchronized StartIndexingResponse startIndexing(boolean incremental) {
         StartIndexingResponse startIndexingResponse = new StartIndexingResponse();
+        if (!sessions.isEmpty()) {
+            startIndexingResponse.setResult(false);
+            return startIndexingResponse;
+        }
         forkJoinPool = new ForkJoinPool();
+        crawlMetrics.monitorPool(forkJoinPool);
         try {
             for (SiteConfig siteConfig : sitesList.getSites()) {
-                new Thread(() -> createSite(siteConfig)).start();
+                Site existingSite = incremental ? siteRepository.findByUrl(siteConfig.getUrl()) : null;
+                Site site = existingSite != null ? prepareSiteForRecrawl(existingSite) : createSite(siteConfig);
+                CrawlSession session = new CrawlSession(site, siteConfig.getCrawlDelay(), forkJoinPool,
+                        existingSite != null, createCheckpoint(siteConfig));
+                session.getCheckpoint().delete();
+                session.markVisited(site.getUrl());
+                session.getCheckpoint().queued(site.getUrl());
+                sessions.put(siteConfig.getUrl(), session);
+                new Thread(() -> indexSite(session, List.of(site.getUrl()))).start();
             }
         } catch (Exception ex) {
             startIndexingResponse.setResult(false);
@@ -54,40 +94,177 @@ public class StartAndStopIndexingServiceImpl implements StartAndStopIndexingServ
         return startIndexingResponse;
     }
 
+    /**
+     * Продолжает прерванную индексацию сайтов, для которых остался журнал обхода:
+     * посещённые ссылки восстанавливаются из журнала, а обход начинается с очереди
+     * ещё не обработанных страниц. Уже сохранённые страницы и леммы не удаляются.
+     */
+    @Override
+    public synchronized StartIndexingResponse resumeIndexing() {
+        StartIndexingResponse startIndexingResponse = new StartIndexingResponse();
+        if (!sessions.isEmpty()) {
+            startIndexingResponse.setResult(false);
+            return startIndexingResponse;
+        }
+        forkJoinPool = new ForkJoinPool();
+        crawlMetrics.monitorPool(forkJoinPool);
+        try {
+            for (SiteConfig siteConfig : sitesList.getSites()) {
+                CrawlCheckpoint checkpoint = createCheckpoint(siteConfig);
+                Site existingSite = siteRepository.findByUrl(siteConfig.getUrl());
+                if (!checkpoint.exists() || existingSite == null) {
+                    continue;
+                }
+                CrawlSession session = new CrawlSession(prepareSiteForRecrawl(existingSite),
+                        siteConfig.getCrawlDelay(), forkJoinPool, true, checkpoint);
+                checkpoint.loadVisited().forEach(session::markVisited);
+                List<String> frontier = checkpoint.loadFrontier();
+                session.markReindex(frontier);
+                sessions.put(siteConfig.getUrl(), session);
+                new Thread(() -> indexSite(session, frontier)).start();
+            }
+        } catch (Exception ex) {
+            startIndexingResponse.setResult(false);
+            return startIndexingResponse;
+        }
+        if (sessions.isEmpty()) {
+            forkJoinPool.shutdown();
+        }
+        startIndexingResponse.setResult(!sessions.isEmpty());
+        return startIndexingResponse;
+    }
+
     @Override
-    public StopIndexingResponse stopIndexing() {
+    public synchronized StopIndexingResponse stopIndexing() {
         StopIndexingResponse stopIndexingResponse = new StopIndexingResponse();
+        if (sessions.isEmpty()) {
+            stopIndexingResponse.setResult(false);
+            return stopIndexingResponse;
+        }
         try {
-            ParseSite.setIsStoppedIndexing(true);
+            for (CrawlSession session : sessions.values()) {
+                session.stop();
+                politenessScheduler.cancel(session.getHost());
+            }
             forkJoinPool.shutdownNow();
         }catch (Exception ex) {
             stopIndexingResponse.setResult(false);
+            return stopIndexingResponse;
         }
         stopIndexingResponse.setResult(true);
         return stopIndexingResponse;
     }
 
+    /**
+     * При остановке приложения прерывает обход и ждёт, пока потоки сайтов сохранят
+     * отложенные леммы и журнал обхода, чтобы индексацию можно было продолжить.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        stopIndexing();
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        while (!sessions.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(finalCheckpointRetryMillis);
+        }
+    }
 
-    private void createSite(SiteConfig siteConfig) {
-        deleteSiteByName(siteConfig.getName());
+    @Override
+    public boolean isIndexing() {
+        return !sessions.isEmpty();
+    }
+
+    /**
+     * Снимок счётчиков текущих сессий; скорость загрузки заполняет вызывающий.
+     */
+    @Override
+    public List<SiteIndexingProgress> getProgress() {
+        List<SiteIndexingProgress> progress = new ArrayList<>();
+        for (CrawlSession session : sessions.values()) {
+            SiteIndexingProgress siteProgress = new SiteIndexingProgress();
+            siteProgress.setUrl(session.getSite().getUrl());
+            siteProgress.setName(session.getSite().getName());
+            siteProgress.setPagesFetched(session.getPagesCount().get());
+            siteProgress.setPagesQueued(session.getPendingTasks().get());
+            siteProgress.setLemmasWritten(session.getLemmasCount().get());
+            siteProgress.setErrors(session.getErrorsCount().get());
+            progress.add(siteProgress);
+        }
+        progress.sort(Comparator.comparing(SiteIndexingProgress::getUrl));
+        return progress;
+    }
+
+
+    private Site createSite(SiteConfig siteConfig) {
         Site site = new Site();
         site.setUrl(siteConfig.getUrl());
         site.setName(siteConfig.getName());
         site.setStatusTime(LocalDateTime.now());
         site.setStatus(IndexingStatus.INDEXING);
-        siteRepository.save(site);
-        createPages(site);
+        return site;
+    }
+
+
+    private Site prepareSiteForRecrawl(Site site) {
+        site.setStatusTime(LocalDateTime.now());
+        site.setStatus(IndexingStatus.INDEXING);
+        site.setLastError(null);
+        return site;
+    }
+
+
+    private CrawlCheckpoint createCheckpoint(SiteConfig siteConfig) {
+        return new CrawlCheckpoint(Path.of(sitesList.getCheckpointDir()), siteConfig.getUrl());
     }
 
 
-    private void createPages(Site site) {
+    private void indexSite(CrawlSession session, List<String> startLinks) {
+        Site site = session.getSite();
+        try {
+            if (session.isIncremental()) {
+                siteRepository.save(site);
+                for (PageVersion pageVersion : pageRepository.findAllBySite_Id(site.getId())) {
+                    session.getKnownPages().put(pageVersion.getPath(), pageVersion);
+                }
+            } else {
+                deleteSiteByName(site.getName());
+                siteRepository.save(site);
+            }
+            createPages(session, startLinks);
+        } finally {
+            if (session.isStopped()) {
+                politenessScheduler.cancel(session.getHost());
+            }
+            sessions.remove(site.getUrl(), session);
+        }
+    }
+
+
+    private void createPages(CrawlSession session, List<String> startLinks) {
+        Site site = session.getSite();
         try {
             ParseSite.setPageRepository(pageRepository);
-            ParseSite.setLemmaRepository(lemmaRepository);
-            ParseSite.setIndexModelRepository(indexModelRepository);
-            ParseSite parseSite = new ParseSite(site, site.getUrl());
-            ParseSite.setIsStoppedIndexing(false);
-            forkJoinPool.invoke(parseSite);
+            ParseSite.setPageContentRepository(pageContentRepository);
+            ParseSite.setLemmaIndexWriter(lemmaIndexWriter);
+            ParseSite.setPageCounters(pageCounters);
+            ParseSite.setCrawlMetrics(crawlMetrics);
+            ParseSite.setPolitenessScheduler(politenessScheduler);
+            ParseSite.setPageFetcher(pageFetcher);
+            ParseSite.setLemmaFinder(lemmaFinder);
+            startLinks.forEach(link -> ParseSite.submit(session, link));
+            try {
+                while (!startLinks.isEmpty() && !session.awaitCompletion(sitesList.getCheckpointInterval())) {
+                    saveCheckpoint(session);
+                }
+            } finally {
+                saveFinalCheckpoint(session);
+            }
+            if (session.isIncremental()) {
+                removeMissingPages(session);
+            }
+            session.getCheckpoint().delete();
             site.setStatusTime(LocalDateTime.now());
             site.setStatus(IndexingStatus.INDEXED);
             siteRepository.save(site);
@@ -101,10 +278,65 @@ public class StartAndStopIndexingServiceImpl implements StartAndStopIndexingServ
     }
 
 
+    /**
+     * Сначала забирает записи журнала, затем сохраняет отложенные леммы и только
+     * после этого дописывает записи на диск, так что страница, отмеченная в журнале
+     * обработанной, уже проиндексирована.
+     */
+    private boolean saveCheckpoint(CrawlSession session) {
+        List<PageLemmas> lemmas = new ArrayList<>();
+        List<String> records = session.takeCheckpointRecords(lemmas);
+        if (records == null) {
+            return false;
+        }
+        ParseSite.writeLemmasAndIndexes(session, lemmas);
+        session.getCheckpoint().append(records);
+        return true;
+    }
+
+
+    /**
+     * После остановки пачки могут дописываться ещё какое-то время; если дождаться
+     * их не удалось, отложенные леммы сохраняются без обновления журнала,
+     * и эти страницы при продолжении будут проиндексированы повторно.
+     */
+    private void saveFinalCheckpoint(CrawlSession session) {
+        try {
+            for (int attempt = 0; attempt < finalCheckpointAttempts; attempt++) {
+                if (saveCheckpoint(session)) {
+                    return;
+                }
+                Thread.sleep(finalCheckpointRetryMillis);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        ParseSite.writeLemmasAndIndexes(session, session.drainPendingLemmas());
+    }
+
+
+    /**
+     * Удаляет страницы, которые были в прошлом обходе, но больше не встретились,
+     * и леммы, у которых после этого не осталось страниц.
+     */
+    private void removeMissingPages(CrawlSession session) {
+        for (PageVersion pageVersion : session.getKnownPages().values()) {
+            if (!session.getVisitedLinks().contains(session.toUrl(pageVersion.getPath()))) {
+                lemmaIndexWriter.removePage(session.getSite(), pageVersion.getId());
+                pageRepository.deleteById(pageVersion.getId());
+                pageCounters.pageRemoved(session.getSite().getId());
+            }
+        }
+        lemmaIndexWriter.deleteUnusedLemmas(session.getSite());
+    }
+
+
     private void deleteSiteByName(String name) {
         List<Site> sites = siteRepository.findAllByName(name);
         for (Site site : sites) {
             if (site != null) {
+                invertedIndex.removeSite(site.getId());
+                pageCounters.removeSite(site.getId());
                 siteRepository.delete(site);
             }
         }
@@ -25,17 +25,23 @@ public class StatisticsServiceImpl implements StatisticsService {
 
     private final SitesList sites;
 
+    private final PageCounters pageCounters;
+
+    private final InvertedIndex invertedIndex;
+
+    private final StartAndStopIndexingService startAndStopIndexingService;
+
     @Override
     public StatisticsResponse getStatistics() {
         TotalStatistics total = new TotalStatistics();
         total.setSites(sites.getSites().size());
-        total.setIndexing(true);
+        total.setIndexing(startAndStopIndexingService.isIndexing());
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
         List<Site> siteList = siteRepository.findAll();
         for (Site site : siteList) {
-            total.setPages(total.getPages() + site.getPageList().size());
-            total.setLemmas(total.getLemmas() + site.getLemmaList().size());
             DetailedStatisticsItem statisticsItem = getDetailedStatisticsItem(site);
+            total.setPages(total.getPages() + statisticsItem.getPages());
+            total.setLemmas(total.getLemmas() + statisticsItem.getLemmas());
             detailed.add(statisticsItem);
         }
         StatisticsData data = new StatisticsData();
@@ -53,8 +59,8 @@ public class StatisticsServiceImpl implements StatisticsService {
         long date = zdt.toInstant().toEpochMilli();
         item.setName(site.getName());
         item.setUrl(site.getUrl());
-        item.setPages(site.getPageList().size());
-        item.setLemmas(site.getLemmaList().size());
+        item.setPages(pageCounters.getPages(site.getId()));
+        item.setLemmas(invertedIndex.getLemmaCount(site.getId()));
         item.setStatus(site.getStatus().name());
         item.setError(site.getLastError());
         item.setStatusTime(date);
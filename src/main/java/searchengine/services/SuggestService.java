@@ -0,0 +1,7 @@
+package searchengine.services;
+
+import searchengine.dto.search.SuggestResponse;
+
+public interface SuggestService {
+    SuggestResponse suggest(String query, String site, int limit);
+}
@@ -0,0 +1,69 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import searchengine.config.SiteConfig;
+import searchengine.config.SitesList;
+import searchengine.dto.search.SuggestResponse;
+
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+public class SuggestServiceImpl implements SuggestService {
+
+    private static final int defaultLimit = 10;
+    private static final int maxLimit = 50;
+
+    private final SitesList sitesList;
+    private final InvertedIndex invertedIndex;
+
+
+    /**
+     * Дополняет последнее слово запроса леммами из индекса. Без сайта подсказки
+     * всех сайтов объединяются, а веса одинаковых лемм складываются.
+     */
+    @Override
+    public SuggestResponse suggest(String query, String siteUrl, int limit) {
+        SuggestResponse suggestResponse = new SuggestResponse();
+        String prefix = getLastWord(query);
+        if (prefix == null) {
+            suggestResponse.setResult(false);
+            return suggestResponse;
+        }
+        limit = limit > 0 ? Math.min(limit, maxLimit) : defaultLimit;
+        List<String> siteUrls = siteUrl != null ? List.of(siteUrl)
+                : sitesList.getSites().stream().map(SiteConfig::getUrl).toList();
+        Map<String, Integer> weights = new HashMap<>();
+        for (String url : siteUrls) {
+            Integer siteId = invertedIndex.getSiteId(url);
+            if (siteId == null) {
+                continue;
+            }
+            for (LemmaSuggestion suggestion : invertedIndex.suggest(siteId, prefix, limit)) {
+                weights.merge(suggestion.getLemma(), suggestion.getWeight(), Integer::sum);
+            }
+        }
+        suggestResponse.setResult(true);
+        suggestResponse.setData(weights.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList());
+        return suggestResponse;
+    }
+
+
+    private String getLastWord(String query) {
+        if (query == null) {
+            return null;
+        }
+        WordTokenizer tokenizer = new WordTokenizer(query);
+        String word = null;
+        while (tokenizer.next()) {
+            word = tokenizer.word();
+        }
+        return word;
+    }
+}
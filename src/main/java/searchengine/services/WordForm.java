@@ -0,0 +1,15 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Результат морфологического разбора словоформы.
+ * normalForm равна null, если словарь не знает слова.
+ */
+@Getter
+@RequiredArgsConstructor
+public class WordForm {
+    private final boolean servicePart;
+    private final String normalForm;
+}
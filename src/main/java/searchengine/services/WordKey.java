@@ -0,0 +1,65 @@
+package searchengine.services;
+
+import java.util.Arrays;
+
+/**
+ * Слово как ключ кэша словоформ поверх массива символов. Токенизатор заполняет
+ * один и тот же ключ для каждого слова, и поиск в кэше обходится без создания строки;
+ * в кэш кладётся только неизменяемая копия {@link #copy()}.
+ */
+public final class WordKey {
+
+    private char[] chars;
+    private int length;
+    private int hash;
+
+    WordKey(int capacity) {
+        chars = new char[capacity];
+    }
+
+    private WordKey(char[] chars, int hash) {
+        this.chars = chars;
+        this.length = chars.length;
+        this.hash = hash;
+    }
+
+
+    void clear() {
+        length = 0;
+        hash = 0;
+    }
+
+    void append(char symbol) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        chars[length++] = symbol;
+        hash = 31 * hash + symbol;
+    }
+
+    public WordKey copy() {
+        return new WordKey(Arrays.copyOf(chars, length), hash);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof WordKey key) || key.hash != hash || key.length != length) {
+            return false;
+        }
+        return Arrays.equals(chars, 0, length, key.chars, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
@@ -0,0 +1,113 @@
+package searchengine.services;
+
+/**
+ * Однопроходный разбор текста на слова без регулярных выражений и копий всего текста.
+ * Словом считается непрерывная последовательность кириллических или латинских букв;
+ * смена алфавита тоже разделяет слова. Для каждого слова известны порядковый номер
+ * и границы в исходном тексте.
+ * <pre>
+ * WordTokenizer tokenizer = new WordTokenizer(text);
+ * while (tokenizer.next()) {
+ *     String word = tokenizer.word();
+ * }
+ * </pre>
+ */
+public class WordTokenizer {
+
+    private final CharSequence text;
+    private final WordKey word = new WordKey(32);
+    private int offset;
+    private int start;
+    private int end;
+    private int position = -1;
+    private boolean latin;
+
+    public WordTokenizer(CharSequence text) {
+        this.text = text;
+    }
+
+
+    public boolean next() {
+        int length = text.length();
+        while (offset < length && !isLetter(text.charAt(offset))) {
+            offset++;
+        }
+        if (offset >= length) {
+            return false;
+        }
+        start = offset;
+        latin = isLatin(text.charAt(offset));
+        word.clear();
+        while (offset < length) {
+            char symbol = text.charAt(offset);
+            if (!isLetter(symbol) || isLatin(symbol) != latin) {
+                break;
+            }
+            word.append(toLowerCase(symbol));
+            offset++;
+        }
+        end = offset;
+        position++;
+        return true;
+    }
+
+    /**
+     * Текущее слово в нижнем регистре, буква «ё» заменена на «е».
+     */
+    public String word() {
+        return word.toString();
+    }
+
+    /**
+     * Текущее слово без создания строки. Ключ переиспользуется следующим вызовом
+     * {@link #next()}, поэтому сохранять можно только его копию.
+     */
+    public WordKey wordKey() {
+        return word;
+    }
+
+    public boolean isLatin() {
+        return latin;
+    }
+
+    /**
+     * Порядковый номер слова в тексте, начиная с нуля.
+     */
+    public int position() {
+        return position;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+
+    public static boolean isLetter(char symbol) {
+        return isCyrillic(symbol) || isLatin(symbol);
+    }
+
+    public static boolean isCyrillic(char symbol) {
+        return (symbol >= 'а' && symbol <= 'я') || (symbol >= 'А' && symbol <= 'Я') || symbol == 'ё' || symbol == 'Ё';
+    }
+
+    public static boolean isLatin(char symbol) {
+        return (symbol >= 'a' && symbol <= 'z') || (symbol >= 'A' && symbol <= 'Z');
+    }
+
+    private static char toLowerCase(char symbol) {
+        if (symbol >= 'А' && symbol <= 'Я') {
+            return (char) (symbol + ('а' - 'А'));
+        }
+        if (symbol >= 'A' && symbol <= 'Z') {
+            return (char) (symbol + ('a' - 'A'));
+        }
+        if (symbol == 'ё' || symbol == 'Ё') {
+            return 'е';
+        }
+        return symbol;
+    }
+}